@@ -0,0 +1,57 @@
+package com.dvs.benchmark;
+
+import com.dvs.model.DataSet;
+import com.dvs.service.ChartService;
+import com.dvs.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JPanel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chart creation with {@link ChartService#createChart} for every chart
+ * type, category charts from a SALES fixture and XY charts from a SERIES
+ * fixture. The chart cache is disabled so every call builds the chart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class ChartBenchmark {
+
+    static final String[] CHART_TYPES = {"Bar Chart", "Grouped Bar Chart", "Pie Chart", "Line Chart", "Scatter Plot"};
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"Bar Chart", "Grouped Bar Chart", "Pie Chart", "Line Chart", "Scatter Plot"})
+    public String chartType;
+
+    private ChartService chartService;
+    private DataSet dataSet;
+
+    @Setup
+    public void setUp() throws Exception {
+        CsvGenerator.Shape shape = chartType.equals("Line Chart") || chartType.equals("Scatter Plot")
+            ? CsvGenerator.Shape.SERIES : CsvGenerator.Shape.SALES;
+        dataSet = new DataService().loadCSVFile(CsvGenerator.fixture(shape, rows));
+        chartService = new ChartService(0);
+    }
+
+    @Benchmark
+    public JPanel createChart() {
+        return chartService.createChart(dataSet, chartType);
+    }
+}
@@ -0,0 +1,141 @@
+package com.dvs.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic CSV fixtures for the benchmarks.
+ *
+ * The content of a fixture only depends on its shape, row count and seed,
+ * so runs on different machines or revisions measure the same data. Files
+ * are written once to {@code java.io.tmpdir/dvs-benchmarks} (or the
+ * directory of the {@code dvs.benchmark.dir} system property) and reused by
+ * later runs and forks.
+ */
+public final class CsvGenerator {
+
+    /** Seed of the fixtures unless given otherwise */
+    public static final long DEFAULT_SEED = 42L;
+
+    /** Number of distinct categories of the SALES shape */
+    public static final int CATEGORIES = 50;
+
+    private static final String[] REGIONS = {"North", "South", "East", "West", "Central"};
+
+    /** Column layouts, matching what each chart type reads */
+    public enum Shape {
+        /** category, value, region, quantity: bar, grouped bar and pie charts */
+        SALES("category,value,region,quantity"),
+        /** time, value, quantity, label: line charts and scatter plots, time ascending */
+        SERIES("time,value,quantity,label");
+
+        private final String header;
+
+        Shape(String header) {
+            this.header = header;
+        }
+    }
+
+    private CsvGenerator() {
+    }
+
+    /**
+     * Fixture of the given shape and size with the default seed, generated
+     * on first use
+     */
+    public static File fixture(Shape shape, int rows) throws IOException {
+        return fixture(shape, rows, DEFAULT_SEED);
+    }
+
+    public static synchronized File fixture(Shape shape, int rows, long seed) throws IOException {
+        File directory = new File(System.getProperty("dvs.benchmark.dir",
+            new File(System.getProperty("java.io.tmpdir"), "dvs-benchmarks").getPath()));
+        File file = new File(directory, shape.name().toLowerCase(Locale.ROOT) + "-" + rows + "-" + seed + ".csv");
+        if (!file.isFile()) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            // Write aside and rename so an interrupted run never leaves a partial fixture
+            File partial = new File(directory, file.getName() + ".tmp");
+            write(shape, rows, seed, partial);
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    /**
+     * Write rows of the given shape to a file
+     */
+    public static void write(Shape shape, int rows, long seed, File file) throws IOException {
+        Random random = new Random(seed);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write(shape.header);
+            writer.write('\n');
+            StringBuilder line = new StringBuilder(64);
+            double level = 100;
+            for (int row = 0; row < rows; row++) {
+                line.setLength(0);
+                if (shape == Shape.SALES) {
+                    // Skewed categories, as in real sales data
+                    int category = (int) (CATEGORIES * Math.pow(random.nextDouble(), 2));
+                    line.append("Product ").append(category).append(',');
+                    appendDecimal(line, 10 + random.nextDouble() * 990);
+                    line.append(',').append(REGIONS[random.nextInt(REGIONS.length)]);
+                    line.append(',').append(1 + random.nextInt(100));
+                } else {
+                    // Random walk sampled every second
+                    level += random.nextGaussian();
+                    line.append(1_600_000_000L + row).append(',');
+                    appendDecimal(line, level);
+                    line.append(',').append(random.nextInt(1000));
+                    line.append(",s").append(row % 7);
+                }
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Decimal with three fraction digits, without going through String.format
+     */
+    private static void appendDecimal(StringBuilder line, double value) {
+        long thousandths = Math.round(value * 1000);
+        if (thousandths < 0) {
+            line.append('-');
+            thousandths = -thousandths;
+        }
+        line.append(thousandths / 1000).append('.');
+        long fraction = thousandths % 1000;
+        if (fraction < 100) {
+            line.append('0');
+        }
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+
+    /**
+     * Generate fixtures ahead of a run: {@code CsvGenerator <SALES|SERIES> <rows>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CsvGenerator <SALES|SERIES> <rows>...");
+            System.exit(2);
+        }
+        Shape shape = Shape.valueOf(args[0].toUpperCase(Locale.ROOT));
+        for (int i = 1; i < args.length; i++) {
+            System.out.println(fixture(shape, Integer.parseInt(args[i])));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.dvs.benchmark;
+
+import com.dvs.model.DataSet;
+import com.dvs.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row and column access of a loaded SALES fixture:
+ * {@link DataSet#getColumnData(int)} of the value column and {@link DataSet#getPreviewText()}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class DataSetBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private DataSet dataSet;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataSet = new DataService().loadCSVFile(CsvGenerator.fixture(CsvGenerator.Shape.SALES, rows));
+    }
+
+    @Benchmark
+    public List<Object> getColumnData() {
+        return dataSet.getColumnData(1);
+    }
+
+    @Benchmark
+    public String getPreviewText() {
+        return dataSet.getPreviewText();
+    }
+}
@@ -0,0 +1,48 @@
+package com.dvs.benchmark;
+
+import com.dvs.model.DataSet;
+import com.dvs.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV ingestion: {@link DataService#loadCSVFile(File)} of a SALES fixture,
+ * streamed below 32 MB and loaded in parallel above
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class LoadBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private DataService dataService;
+    private File file;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataService = new DataService();
+        file = CsvGenerator.fixture(CsvGenerator.Shape.SALES, rows);
+    }
+
+    @Benchmark
+    public DataSet loadCSVFile() throws Exception {
+        return dataService.loadCSVFile(file);
+    }
+}
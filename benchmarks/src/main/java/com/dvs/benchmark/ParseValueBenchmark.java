@@ -0,0 +1,69 @@
+package com.dvs.benchmark;
+
+import com.dvs.model.NumberScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of a single CSV cell, see {@link NumberScanner#parseValue(String)},
+ * per kind of cell
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseValueBenchmark {
+
+    private static final int CELLS = 1024;
+
+    @Param({"integer", "decimal", "text", "blank"})
+    public String kind;
+
+    private String[] cells;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(CsvGenerator.DEFAULT_SEED);
+        cells = new String[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            switch (kind) {
+                case "integer":
+                    cells[i] = Integer.toString(random.nextInt(1_000_000));
+                    break;
+                case "decimal":
+                    cells[i] = Double.toString(random.nextDouble() * 1000);
+                    break;
+                case "text":
+                    cells[i] = "Product " + random.nextInt(CsvGenerator.CATEGORIES);
+                    break;
+                default:
+                    cells[i] = i % 2 == 0 ? "" : "  ";
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void parseValue(Blackhole blackhole) {
+        for (String cell : cells) {
+            blackhole.consume(NumberScanner.parseValue(cell));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.dvs.benchmark;
+
+import com.dvs.model.DataSet;
+import com.dvs.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chart type checks run after every load:
+ * {@link DataService#validateDataSet} and {@link DataService#getSuggestedChartTypes}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class ValidationBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"SALES", "SERIES"})
+    public CsvGenerator.Shape shape;
+
+    private DataService dataService;
+    private DataSet dataSet;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataService = new DataService();
+        dataSet = dataService.loadCSVFile(CsvGenerator.fixture(shape, rows));
+    }
+
+    @Benchmark
+    public void validateDataSet(Blackhole blackhole) {
+        for (String chartType : ChartBenchmark.CHART_TYPES) {
+            blackhole.consume(dataService.validateDataSet(dataSet, chartType));
+        }
+    }
+
+    @Benchmark
+    public List<String> getSuggestedChartTypes() {
+        return dataService.getSuggestedChartTypes(dataSet);
+    }
+}
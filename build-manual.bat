@@ -42,10 +42,10 @@ echo.
 echo === Creating simplified version ===
 echo Compiling core classes without external dependencies...
 
-REM Compile DataSet model (no external dependencies)
-javac -d target\classes src\main\java\com\dvs\model\DataSet.java
+REM Compile the model classes (no external dependencies)
+javac -d target\classes src\main\java\com\dvs\model\*.java
 if %errorlevel% neq 0 (
-    echo Error compiling DataSet.java
+    echo Error compiling the model classes
     goto :error
 )
 
@@ -4,6 +4,16 @@ let chart;
 const $ = (sel) => document.querySelector(sel);
 const $$ = (sel) => Array.from(document.querySelectorAll(sel));
 
+// Local chart server (java -jar datavizsys.jar --serve): imported files are
+// loaded on the JVM and charts fetch only the aggregated or downsampled series
+// they draw. Used when the page is served by it, or given ?api=http://localhost:8080/
+// when the server was started with --origin set to this page's origin.
+const API = new URLSearchParams(location.search).get('api') ?? (location.protocol.startsWith('http') ? '' : null);
+let server = false;
+if (API !== null) {
+  fetch(`${API}api/datasets`).then(res => { server = res.ok; }).catch(() => {});
+}
+
 const PALETTES = {
   classic: ['#4f46e5','#16a34a','#f59e0b','#dc2626','#0891b2','#7c3aed','#f97316','#059669'],
   cbf: ['#0072B2','#E69F00','#009E73','#F0E442','#56B4E9','#D55E00','#CC79A7','#999999'],
@@ -11,8 +21,8 @@ const PALETTES = {
   vivid: ['#3b82f6','#22c55e','#f97316','#ef4444','#06b6d4','#8b5cf6','#eab308','#10b981']
 };
 
-function setData(name, columns, rows) {
-  dataSet = { name, columns, rows };
+function setData(name, columns, rows, remote) {
+  dataSet = { name, columns, rows, remote };
   renderPreview();
   suggestChartTypes();
   populateColumnPickers();
@@ -26,7 +36,8 @@ function renderPreview() {
   let html = '<table><thead><tr>' + cols.map(c=>`<th>${c}</th>`).join('') + '</tr></thead><tbody>';
   for (const r of rows) html += '<tr>' + r.map(v=>`<td>${v ?? ''}</td>`).join('') + '</tr>';
   html += '</tbody></table>';
-  if (dataSet.rows.length > 10) html += `<div class="muted">... and ${dataSet.rows.length-10} more rows</div>`;
+  const total = dataSet.remote ? dataSet.remote.rows : dataSet.rows.length;
+  if (total > 10) html += `<div class="muted">... and ${total-10} more rows</div>`;
   el.innerHTML = html;
 }
 
@@ -42,6 +53,30 @@ function parseCSV(text, name='CSV Data') {
   setData(name, header, parsed);
 }
 
+async function getJson(url, init) {
+  const res = await fetch(url, init);
+  const json = await res.json();
+  if (!res.ok) throw new Error(json.error || res.statusText);
+  return json;
+}
+
+// Load a file on the server, keeping only its first rows in the page
+async function uploadCSV(file) {
+  try {
+    const info = await getJson(`${API}api/datasets?name=${encodeURIComponent(file.name)}`, { method: 'POST', body: file });
+    setData(info.name, info.columns.map(c => c.name), info.preview, { name: info.name, rows: info.rows });
+  } catch (e) {
+    alert(`Cannot load ${file.name}: ${e.message}`);
+  }
+}
+
+function importFile(file) {
+  if (server) { uploadCSV(file); return; }
+  const reader = new FileReader();
+  reader.onload = () => parseCSV(String(reader.result), file.name);
+  reader.readAsText(file);
+}
+
 function populateColumnPickers() {
   const xSel = $('#xColumn');
   const ySel = $('#yColumn');
@@ -92,31 +127,49 @@ function toChartJsDataset(type) {
   const c1 = Number($('#yColumn')?.value ?? 1);
   const labels = dataSet.rows.map(r => String(r[c0]));
   const values = dataSet.rows.map(r => Number(r[c1]) || 0);
-  if (type === 'Pie Chart') {
-    return { labels, data: values };
+  const points = dataSet.rows.map(r => ({ x: Number(r[0]) || 0, y: Number(r[1]) || 0 }));
+  return { labels, values, points, label: dataSet.columns[c1] || 'Value' };
+}
+
+// Series of a dataset loaded on the server: aggregated categories, or an XY
+// series downsampled to about one point per canvas pixel
+async function fetchChartData(type) {
+  const c0 = Number($('#xColumn')?.value ?? 0);
+  const c1 = Number($('#yColumn')?.value ?? 1);
+  const base = `${API}api/datasets/${encodeURIComponent(dataSet.remote.name)}`;
+  if (type === 'Bar Chart' || type === 'Pie Chart') {
+    const a = await getJson(`${base}/aggregate?key=${c0}&value=${c1}`);
+    return { labels: a.labels, values: a.values, points: [], label: a.label };
   }
-  return { labels, datasets: [{ label: dataSet.columns[c1] || 'Value', data: values }] };
+  const s = await getJson(`${base}/series?x=${c0}&y=${c1}&points=${$('#chartCanvas').width}`);
+  return { labels: s.x.map(String), values: s.y, points: s.x.map((x, i) => ({ x, y: s.y[i] })), label: s.yLabel };
 }
 
-function renderChart() {
+async function renderChart() {
   const type = $('#chartType').value;
-  const ctx = $('#chartCanvas').getContext('2d');
-  chart && chart.destroy();
   if (!dataSet.columns.length || dataSet.columns.length < 2) {
     alert('Need at least two columns (Category, Value)');
     return;
   }
+  let d;
+  try {
+    d = dataSet.remote ? await fetchChartData(type) : toChartJsDataset(type);
+  } catch (e) {
+    alert(`Cannot render chart: ${e.message}`);
+    return;
+  }
+  const ctx = $('#chartCanvas').getContext('2d');
+  chart && chart.destroy();
   const cfg = { type: 'bar', data: {}, options: { responsive: true, maintainAspectRatio: false, plugins: { legend: { display: type !== 'Pie Chart' }, title: { display: !!$('#chartTitle').value, text: $('#chartTitle').value } } } };
-  const d = toChartJsDataset(type);
   const palette = PALETTES[$('#palette')?.value || 'classic'];
   if (type === 'Bar Chart') {
-    cfg.type = 'bar'; cfg.data = d; cfg.data.datasets[0].backgroundColor = palette; cfg.data.datasets[0].borderWidth = 0; }
+    cfg.type = 'bar'; cfg.data = { labels: d.labels, datasets: [{ label: d.label, data: d.values, backgroundColor: palette, borderWidth: 0 }] }; }
   else if (type === 'Pie Chart') {
-    cfg.type = 'pie'; cfg.data = { labels: d.labels, datasets: [{ data: d.data, backgroundColor: palette }] }; }
+    cfg.type = 'pie'; cfg.data = { labels: d.labels, datasets: [{ data: d.values, backgroundColor: palette }] }; }
   else if (type === 'Line Chart') {
-    cfg.type = 'line'; cfg.data = d; cfg.data.datasets[0].borderColor = palette[0]; cfg.data.datasets[0].backgroundColor = 'transparent'; cfg.data.datasets[0].tension = 0.25; }
+    cfg.type = 'line'; cfg.data = { labels: d.labels, datasets: [{ label: d.label, data: d.values, borderColor: palette[0], backgroundColor: 'transparent', tension: 0.25 }] }; }
   else if (type === 'Scatter Plot') {
-    cfg.type = 'scatter'; cfg.data = { datasets: [{ label: d.datasets?.[0]?.label || 'Series', data: dataSet.rows.map(r => ({ x: Number(r[0]) || 0, y: Number(r[1]) || 0 })) }] };
+    cfg.type = 'scatter'; cfg.data = { datasets: [{ label: d.label || 'Series', data: d.points }] };
     cfg.options.scales = { x: { type: 'linear' } };
     cfg.data.datasets[0].pointBackgroundColor = palette[0];
   }
@@ -135,9 +188,7 @@ function exportPng() {
 $('#fileInput').addEventListener('change', (e) => {
   const file = e.target.files?.[0];
   if (!file) return;
-  const reader = new FileReader();
-  reader.onload = () => parseCSV(String(reader.result), file.name);
-  reader.readAsText(file);
+  importFile(file);
 });
 
 $('#loadSample').addEventListener('click', async () => {
@@ -151,7 +202,8 @@ $('#exportPng').addEventListener('click', exportPng);
 
 // Cleaning options
 function applyCleaning() {
-  if (!dataSet.columns.length) return;
+  // Datasets on the server are cleaned when loaded
+  if (!dataSet.columns.length || dataSet.remote) return;
   const trim = $('#optTrim')?.checked;
   const dropEmpty = $('#optDropEmpty')?.checked;
   const infer = $('#optInfer')?.checked;
@@ -180,7 +232,7 @@ $('#applyClean')?.addEventListener('click', applyCleaning);
 function profileData() {
   const el = $('#profile');
   if (!el || !dataSet.columns.length) { if (el) el.innerHTML = ''; return; }
-  const rows = dataSet.rows.length;
+  const rows = dataSet.remote ? dataSet.remote.rows : dataSet.rows.length;
   const cols = dataSet.columns.length;
   const numeric = inferNumericColumns().length;
   el.innerHTML = `Rows: <b>${rows}</b> • Columns: <b>${cols}</b> • Numeric columns: <b>${numeric}</b>`;
@@ -190,7 +242,8 @@ function richerInsights() {
   const list = $('#insights');
   if (!list) return;
   list.innerHTML = '';
-  if (dataSet.columns.length < 2 || !dataSet.rows.length) return;
+  // Only the first rows of a dataset on the server are in the page
+  if (dataSet.columns.length < 2 || !dataSet.rows.length || dataSet.remote) return;
   const c0 = Number($('#xColumn')?.value ?? 0);
   const c1 = Number($('#yColumn')?.value ?? 1);
   const pairs = dataSet.rows
@@ -213,8 +266,8 @@ function refreshSidebars() { profileData(); richerInsights(); }
 
 // Refresh sidebars after data changes
 const _setData = setData;
-setData = function(name, columns, rows) {
-  dataSet = { name, columns, rows };
+setData = function(name, columns, rows, remote) {
+  dataSet = { name, columns, rows, remote };
   renderPreview();
   suggestChartTypes();
   populateColumnPickers();
@@ -227,7 +280,5 @@ window.addEventListener('drop', e => {
   e.preventDefault();
   const file = e.dataTransfer.files?.[0];
   if (!file) return;
-  const reader = new FileReader();
-  reader.onload = () => parseCSV(String(reader.result), file.name);
-  reader.readAsText(file);
+  importFile(file);
 });
@@ -25,21 +25,19 @@ echo.
 echo === Compiling Java files ===
 
 REM Compile in dependency order
-echo Compiling DataSet...
-javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\model\DataSet.java
+echo Compiling model classes...
+javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\model\*.java
 
-echo Compiling DataService...
-javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\service\DataService.java
-
-echo Compiling ChartService...
-javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\service\ChartService.java
+echo Compiling service classes...
+javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\service\*.java
 
 echo Compiling UI classes...
+javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\ui\DataSetTableModel.java
 javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\ui\DataEntryDialog.java
 javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\ui\MainWindow.java
 
 echo Compiling main App...
-javac -d target\classes -cp "%CLASSPATH%" src\main\java\com\dvs\App.java
+javac -d target\classes -cp "%CLASSPATH%" -sourcepath src\main\java src\main\java\com\dvs\App.java
 
 if %errorlevel% neq 0 (
     echo Compilation failed!
@@ -1,18 +1,43 @@
 package com.dvs;
 
+import com.dvs.service.BatchRenderer;
+import com.dvs.service.ChartServer;
 import com.dvs.ui.MainWindow;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import javax.swing.SwingUtilities;
 
 /**
  * Data Visualization System - Main Application Entry Point
- * 
+ *
  * A desktop-based application for creating interactive data visualizations
  * from CSV files and manual data entry using JFreeChart library.
+ *
+ * With {@code --batch <job file> [--threads <n>]} it instead renders the
+ * charts listed in the job file headlessly and exits, see {@link BatchRenderer}.
+ *
+ * With {@code --serve [--port <n>] [--threads <n>] [--data <dir>] [--web <dir>] [--origin <url>]}
+ * it runs the local chart server of the web front-end until stopped, see
+ * {@link ChartServer}. Only the files of an explicit data directory are
+ * served, and only the given origin may call it from another page.
  */
-public class App 
+public class App
 {
     public static void main( String[] args )
     {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int status = runServer(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+
         // Start the application on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             try {
@@ -24,4 +49,91 @@ public class App
             }
         });
     }
+
+    /**
+     * Render a job file without any window, returns the process exit code
+     */
+    private static int runBatch(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean valid = args.length == 2;
+        if (args.length == 4 && args[2].equals("--threads")) {
+            try {
+                threads = Integer.parseInt(args[3]);
+                valid = threads >= 1;
+            } catch (NumberFormatException e) {
+                valid = false;
+            }
+        }
+        if (!valid) {
+            System.err.println("Usage: java -jar datavizsys.jar --batch <job file> [--threads <n>]");
+            return 2;
+        }
+
+        // Must be set before any AWT class is loaded
+        System.setProperty("java.awt.headless", "true");
+        try {
+            BatchRenderer.Report report = new BatchRenderer(threads).run(BatchRenderer.readJobs(new File(args[1])));
+            report.print(System.out);
+            return report.getFailures().isEmpty() ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Error reading job file: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    /**
+     * Start the chart server on the loopback interface, returns 0 once it
+     * is listening or the process exit code on failure
+     */
+    private static int runServer(String[] args) {
+        int port = ChartServer.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File data = null;
+        String origin = null;
+        File web = new File("docs").isDirectory() ? new File("docs") : null;
+        try {
+            if (args.length % 2 == 0) {
+                throw new IllegalArgumentException();
+            }
+            for (int i = 1; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--data":
+                        data = new File(args[i + 1]);
+                        break;
+                    case "--web":
+                        web = new File(args[i + 1]);
+                        break;
+                    case "--origin":
+                        origin = args[i + 1];
+                        break;
+                    default:
+                        throw new IllegalArgumentException();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: java -jar datavizsys.jar --serve [--port <n>] [--threads <n>]"
+                + " [--data <dir>] [--web <dir>] [--origin <url>]");
+            return 2;
+        }
+
+        System.setProperty("java.awt.headless", "true");
+        ChartServer server = new ChartServer(data, web);
+        server.setAllowedOrigin(origin);
+        try {
+            server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads);
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            return 1;
+        }
+        System.out.println((data != null ? "Serving datasets of " + data.getAbsolutePath()
+            : "Serving uploaded datasets only, no --data directory given") + " on http://localhost:"
+            + server.getPort() + "/");
+        return 0;
+    }
 }
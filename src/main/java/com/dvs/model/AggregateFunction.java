@@ -0,0 +1,34 @@
+package com.dvs.model;
+
+/**
+ * Aggregate computed for each group by {@link GroupBy}
+ */
+public enum AggregateFunction {
+    /** Sum of the numeric values */
+    SUM("Sum"),
+    /** Number of rows in the group, whatever their value */
+    COUNT("Count"),
+    /** Arithmetic mean of the numeric values */
+    MEAN("Mean"),
+    /** Smallest numeric value */
+    MIN("Min"),
+    /** Largest numeric value */
+    MAX("Max");
+
+    private final String label;
+
+    AggregateFunction(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Name of the result column when aggregating the given column
+     */
+    public String columnName(String valueColumn) {
+        return this == COUNT ? label : label + " of " + valueColumn;
+    }
+}
@@ -0,0 +1,728 @@
+package com.dvs.model;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage for a single dataset column.
+ * Values are kept in a primitive vector matching the column type and the
+ * column is promoted (LONG to DOUBLE, anything to OBJECT) when a value that
+ * does not fit is stored. Missing values cost one bit each in a null bitmap,
+ * which is only allocated once a value is missing.
+ * Summary statistics are maintained as values are stored, see {@link ColumnStats}.
+ */
+final class Column {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private ColumnType type = ColumnType.EMPTY;
+    private int size;
+    private int capacity;
+
+    private long[] longs;
+    private double[] doubles;
+    private int[] codes;
+    private StringDictionary dictionary;
+    private Object[] objects;
+
+    // Bit per row, set when the value is missing; null while no value ever was
+    private long[] nulls;
+
+    // LONG columns box back to Integer while every stored value was an Integer
+    private boolean integerValues = true;
+
+    // Deferred source of the values, see ensureLoaded()
+    private volatile ColumnLoader loader;
+
+    // Statistics of the stored values, null when they must be computed again
+    private volatile ColumnStats stats;
+
+    Column() {
+        stats = new ColumnStats();
+    }
+
+    /**
+     * Create a column of known type and size whose values are filled in by
+     * the loader the first time they are needed
+     */
+    Column(ColumnType type, int size, ColumnLoader loader) {
+        this.type = type;
+        this.size = size;
+        this.capacity = size;
+        this.loader = loader;
+    }
+
+    /**
+     * Run the pending loader, if any. Must be called before the values are accessed.
+     */
+    void ensureLoaded() {
+        if (loader != null) {
+            synchronized (this) {
+                if (loader != null) {
+                    loader.load(this);
+                    loader = null;
+                }
+            }
+        }
+    }
+
+    ColumnType getType() {
+        return type;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Snapshot of the statistics, computed again after a removal
+     */
+    ColumnStats getStats() {
+        ColumnStats current = stats;
+        if (current == null) {
+            current = new ColumnStats();
+            for (int row = nextNonNull(0); row < size; row = nextNonNull(row + 1)) {
+                addToStats(current, row);
+            }
+            stats = current;
+        }
+        return current.copy(type, size);
+    }
+
+    /**
+     * Append a value at the end of the column
+     */
+    void append(Object value) {
+        ensureCapacity(size + 1);
+        size++;
+        store(size - 1, value);
+        if (stats != null) {
+            addToStats(stats, size - 1);
+        }
+    }
+
+    /**
+     * Append an integral value without boxing
+     */
+    void appendLong(long value) {
+        if (type == ColumnType.EMPTY) {
+            initialize(ColumnType.LONG);
+        }
+        if (type == ColumnType.LONG) {
+            ensureCapacity(size + 1);
+            longs[size++] = value;
+            if (value != (int) value) {
+                integerValues = false;
+            }
+            if (stats != null) {
+                stats.addNumber(value);
+            }
+        } else if (type == ColumnType.DOUBLE) {
+            ensureCapacity(size + 1);
+            doubles[size++] = value;
+            if (stats != null) {
+                stats.addNumber(value);
+            }
+        } else if (value == (int) value) {
+            append(Integer.valueOf((int) value));
+        } else {
+            append(Long.valueOf(value));
+        }
+    }
+
+    /**
+     * Append a floating point value without boxing
+     */
+    void appendDouble(double value) {
+        if (type == ColumnType.EMPTY) {
+            initialize(ColumnType.DOUBLE);
+        } else if (type == ColumnType.LONG) {
+            promoteToDouble();
+        }
+        if (type == ColumnType.DOUBLE) {
+            ensureCapacity(size + 1);
+            doubles[size++] = value;
+            if (stats != null) {
+                stats.addNumber(value);
+            }
+        } else {
+            append(Double.valueOf(value));
+        }
+    }
+
+    /**
+     * Append the given number of missing values
+     */
+    void appendNulls(int count) {
+        ensureCapacity(size + count);
+        setNulls(size, size + count);
+        size += count;
+    }
+
+    /**
+     * Append all values of another column, copying primitive vectors in bulk
+     * when both columns share a storage type
+     */
+    void appendAll(Column other) {
+        other.ensureLoaded();
+        ColumnStats otherStats = other.stats;
+        int offset = size;
+        int count = other.size;
+        if (other.type == ColumnType.EMPTY) {
+            appendNulls(count);
+            return;
+        }
+        if (type == ColumnType.EMPTY) {
+            initialize(other.type);
+        }
+        if (type == ColumnType.LONG && other.type == ColumnType.DOUBLE) {
+            promoteToDouble();
+        }
+
+        ensureCapacity(offset + count);
+        if (type == ColumnType.LONG && other.type == ColumnType.LONG) {
+            System.arraycopy(other.longs, 0, longs, offset, count);
+            integerValues &= other.integerValues;
+        } else if (type == ColumnType.DOUBLE && other.type == ColumnType.DOUBLE) {
+            System.arraycopy(other.doubles, 0, doubles, offset, count);
+        } else if (type == ColumnType.DOUBLE && other.type == ColumnType.LONG) {
+            for (int i = 0; i < count; i++) {
+                doubles[offset + i] = other.longs[i];
+            }
+        } else if (type == ColumnType.STRING && other.type == ColumnType.STRING) {
+            // Translate the other dictionary's codes into this dictionary
+            int[] remap = new int[other.dictionary.size()];
+            for (int code = 0; code < remap.length; code++) {
+                remap[code] = dictionary.encode(other.dictionary.decode(code));
+            }
+            for (int i = 0; i < count; i++) {
+                codes[offset + i] = remap[other.codes[i]];
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                append(other.get(i));
+            }
+            return;
+        }
+
+        size += count;
+        if (other.nulls != null) {
+            orNulls(other.nulls, offset, count);
+        }
+        if (stats != null && otherStats != null) {
+            stats.merge(otherStats);
+        } else {
+            stats = null;
+        }
+    }
+
+    /**
+     * Remove a value, moving the following ones up
+     */
+    void remove(int row) {
+        int tail = size - row - 1;
+        if (longs != null) {
+            System.arraycopy(longs, row + 1, longs, row, tail);
+        }
+        if (doubles != null) {
+            System.arraycopy(doubles, row + 1, doubles, row, tail);
+        }
+        if (codes != null) {
+            System.arraycopy(codes, row + 1, codes, row, tail);
+        }
+        if (objects != null) {
+            System.arraycopy(objects, row + 1, objects, row, tail);
+            objects[size - 1] = null;
+        }
+        if (nulls != null) {
+            // Shift the bits above the row down by one, carrying across words
+            int word = row >>> 6;
+            int lastWord = (size - 1) >>> 6;
+            long below = (1L << row) - 1;
+            nulls[word] = (nulls[word] & below) | ((nulls[word] >>> 1) & ~below);
+            for (int i = word; i < lastWord; i++) {
+                nulls[i] |= nulls[i + 1] << 63;
+                nulls[i + 1] >>>= 1;
+            }
+        }
+        size--;
+        stats = null;
+    }
+
+    /**
+     * Rows holding a value equal to the given one, in ascending order; null
+     * finds the missing values. String columns look the value up in their
+     * dictionary once and then compare int codes, numbers compare by value.
+     */
+    int[] findRows(Object value) {
+        int[] rows = new int[16];
+        int count = 0;
+        if (value == null) {
+            for (int row = 0; row < size; row++) {
+                if (isNull(row)) {
+                    rows = add(rows, count++, row);
+                }
+            }
+            return Arrays.copyOf(rows, count);
+        }
+        switch (type) {
+            case STRING:
+                int code = value instanceof String ? dictionary.lookup((String) value) : -1;
+                if (code < 0) {
+                    return new int[0];
+                }
+                for (int row = nextNonNull(0); row < size; row = nextNonNull(row + 1)) {
+                    if (codes[row] == code) {
+                        rows = add(rows, count++, row);
+                    }
+                }
+                break;
+            case LONG:
+            case DOUBLE:
+                if (!(value instanceof Number)) {
+                    return new int[0];
+                }
+                double number = ((Number) value).doubleValue();
+                for (int row = nextNonNull(0); row < size; row = nextNonNull(row + 1)) {
+                    if ((type == ColumnType.LONG ? longs[row] : doubles[row]) == number) {
+                        rows = add(rows, count++, row);
+                    }
+                }
+                break;
+            case OBJECT:
+                for (int row = nextNonNull(0); row < size; row = nextNonNull(row + 1)) {
+                    Object other = objects[row];
+                    if (value instanceof Number && other instanceof Number
+                            ? ((Number) value).doubleValue() == ((Number) other).doubleValue()
+                            : value.equals(other)) {
+                        rows = add(rows, count++, row);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * New column holding the values of the given rows, in that order
+     */
+    Column select(int[] rows) {
+        Column selected = new Column();
+        for (int row : rows) {
+            if (isNull(row)) {
+                selected.appendNulls(1);
+            } else if (type == ColumnType.LONG && !integerValues) {
+                selected.appendLong(longs[row]);
+            } else if (type == ColumnType.DOUBLE) {
+                selected.appendDouble(doubles[row]);
+            } else {
+                selected.append(get(row));
+            }
+        }
+        return selected;
+    }
+
+    private static int[] add(int[] rows, int index, int row) {
+        if (index == rows.length) {
+            rows = Arrays.copyOf(rows, index * 2);
+        }
+        rows[index] = row;
+        return rows;
+    }
+
+    /**
+     * Get a value boxed as an object
+     */
+    Object get(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        switch (type) {
+            case LONG:
+                if (integerValues) {
+                    return Integer.valueOf((int) longs[row]);
+                }
+                return Long.valueOf(longs[row]);
+            case DOUBLE:
+                return doubles[row];
+            case STRING:
+                return dictionary.decode(codes[row]);
+            case OBJECT:
+                return objects[row];
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get a value as double, NaN for missing and non-numeric values
+     */
+    double getDouble(int row) {
+        if (isNull(row)) {
+            return Double.NaN;
+        }
+        switch (type) {
+            case LONG:
+                return longs[row];
+            case DOUBLE:
+                return doubles[row];
+            case OBJECT:
+                return objects[row] instanceof Number ? ((Number) objects[row]).doubleValue() : Double.NaN;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * Get a value as long, 0 for missing and non-numeric values
+     */
+    long getLong(int row) {
+        if (isNull(row)) {
+            return 0L;
+        }
+        switch (type) {
+            case LONG:
+                return longs[row];
+            case DOUBLE:
+                return (long) doubles[row];
+            case OBJECT:
+                return objects[row] instanceof Number ? ((Number) objects[row]).longValue() : 0L;
+            default:
+                return 0L;
+        }
+    }
+
+    boolean isNull(int row) {
+        return nulls != null && (nulls[row >>> 6] & 1L << row) != 0;
+    }
+
+    /**
+     * First row at or after the given one holding a value, size() if there
+     * is none. Missing values are skipped a word of the bitmap at a time.
+     */
+    int nextNonNull(int row) {
+        if (row >= size) {
+            return size;
+        }
+        if (nulls == null) {
+            return row;
+        }
+        int word = row >>> 6;
+        int lastWord = (size - 1) >>> 6;
+        long present = ~nulls[word] & -1L << row;
+        while (present == 0) {
+            if (++word > lastWord) {
+                return size;
+            }
+            present = ~nulls[word];
+        }
+        return Math.min(size, (word << 6) + Long.numberOfTrailingZeros(present));
+    }
+
+    /**
+     * Whether a value may be missing, false when none ever was
+     */
+    boolean hasNulls() {
+        return nulls != null;
+    }
+
+    boolean isNumber(int row) {
+        if (isNull(row)) {
+            return false;
+        }
+        switch (type) {
+            case LONG:
+            case DOUBLE:
+                return true;
+            case OBJECT:
+                return objects[row] instanceof Number;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Store a value, promoting the column type if the value does not fit
+     */
+    void set(int row, Object value) {
+        ColumnStats current = stats;
+        if (current != null && !isNull(row)) {
+            if (!isNumber(row)) {
+                current.removeOther();
+            } else if (!current.removeNumber(getDouble(row))) {
+                // The minimum or maximum is overwritten
+                current = null;
+                stats = null;
+            }
+        }
+        store(row, value);
+        if (current != null) {
+            addToStats(current, row);
+        }
+    }
+
+    private void addToStats(ColumnStats target, int row) {
+        if (isNull(row)) {
+            return;
+        }
+        if (isNumber(row)) {
+            target.addNumber(getDouble(row));
+        } else {
+            target.addOther();
+        }
+    }
+
+    private void store(int row, Object value) {
+        if (value == null || (value instanceof String && ((String) value).trim().isEmpty())) {
+            setNull(row);
+            if (type == ColumnType.OBJECT) {
+                objects[row] = null;
+            }
+            return;
+        }
+        if (nulls != null) {
+            nulls[row >>> 6] &= ~(1L << row);
+        }
+
+        if (type == ColumnType.EMPTY) {
+            initialize(typeOf(value));
+        }
+
+        switch (type) {
+            case LONG:
+                if (isIntegral(value)) {
+                    longs[row] = ((Number) value).longValue();
+                    if (!(value instanceof Integer)) {
+                        integerValues = false;
+                    }
+                    return;
+                }
+                if (isFloating(value)) {
+                    promoteToDouble();
+                    doubles[row] = ((Number) value).doubleValue();
+                    return;
+                }
+                break;
+            case DOUBLE:
+                if (isIntegral(value) || isFloating(value)) {
+                    doubles[row] = ((Number) value).doubleValue();
+                    return;
+                }
+                break;
+            case STRING:
+                if (value instanceof String) {
+                    codes[row] = dictionary.encode((String) value);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (type != ColumnType.OBJECT) {
+            promoteToObject();
+        }
+        objects[row] = value;
+    }
+
+    // Raw storage access for snapshot files; arrays may be longer than size()
+
+    long[] longValues() {
+        return longs;
+    }
+
+    double[] doubleValues() {
+        return doubles;
+    }
+
+    int[] codeValues() {
+        return codes;
+    }
+
+    StringDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Words of the null bitmap covering the first rows, empty without missing values
+     */
+    long[] nullWords(int rows) {
+        return nulls != null ? Arrays.copyOf(nulls, (rows + 63) >>> 6) : new long[0];
+    }
+
+    boolean hasIntegerValues() {
+        return integerValues;
+    }
+
+    void restoreNulls(long[] words) {
+        orNulls(words, 0, Math.min(size, words.length << 6));
+    }
+
+    void restoreLongs(long[] values, boolean integers) {
+        longs = values;
+        integerValues = integers;
+    }
+
+    void restoreDoubles(double[] values) {
+        doubles = values;
+    }
+
+    void restoreStrings(int[] values, StringDictionary valueDictionary) {
+        codes = values;
+        dictionary = valueDictionary;
+    }
+
+    void restoreObjects(Object[] values) {
+        objects = values;
+    }
+
+    private static ColumnType typeOf(Object value) {
+        if (isIntegral(value)) {
+            return ColumnType.LONG;
+        }
+        if (isFloating(value)) {
+            return ColumnType.DOUBLE;
+        }
+        if (value instanceof String) {
+            return ColumnType.STRING;
+        }
+        return ColumnType.OBJECT;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long
+            || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isFloating(Object value) {
+        return value instanceof Double || value instanceof Float;
+    }
+
+    private void initialize(ColumnType newType) {
+        type = newType;
+        switch (newType) {
+            case LONG:
+                longs = new long[capacity];
+                break;
+            case DOUBLE:
+                doubles = new double[capacity];
+                break;
+            case STRING:
+                codes = new int[capacity];
+                dictionary = new StringDictionary();
+                break;
+            default:
+                objects = new Object[capacity];
+                break;
+        }
+    }
+
+    private void promoteToDouble() {
+        doubles = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = longs[i];
+        }
+        longs = null;
+        type = ColumnType.DOUBLE;
+    }
+
+    private void promoteToObject() {
+        Object[] boxed = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = get(i);
+        }
+        longs = null;
+        doubles = null;
+        codes = null;
+        dictionary = null;
+        objects = boxed;
+        type = ColumnType.OBJECT;
+    }
+
+    private void setNull(int row) {
+        if (nulls == null) {
+            nulls = new long[words(capacity)];
+        }
+        nulls[row >>> 6] |= 1L << row;
+    }
+
+    /**
+     * Mark rows [from, to) missing
+     */
+    private void setNulls(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        if (nulls == null) {
+            nulls = new long[words(capacity)];
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            nulls[first] |= firstMask & lastMask;
+            return;
+        }
+        nulls[first] |= firstMask;
+        Arrays.fill(nulls, first + 1, last, -1L);
+        nulls[last] |= lastMask;
+    }
+
+    /**
+     * Mark missing the rows of the given bitmap, bit i landing on row offset + i,
+     * for the first count bits
+     */
+    private void orNulls(long[] words, int offset, int count) {
+        int shift = offset & 63;
+        int base = offset >>> 6;
+        int wordCount = (count + 63) >>> 6;
+        for (int i = 0; i < wordCount; i++) {
+            long word = words[i];
+            if (i == wordCount - 1 && (count & 63) != 0) {
+                word &= -1L >>> -count;
+            }
+            if (word == 0) {
+                continue;
+            }
+            if (nulls == null) {
+                nulls = new long[words(capacity)];
+            }
+            nulls[base + i] |= word << shift;
+            if (shift != 0 && word >>> -shift != 0) {
+                nulls[base + i + 1] |= word >>> -shift;
+            }
+        }
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+        if (newCapacity < required) {
+            newCapacity = required;
+        }
+        capacity = newCapacity;
+        if (longs != null) {
+            longs = Arrays.copyOf(longs, newCapacity);
+        }
+        if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, newCapacity);
+        }
+        if (codes != null) {
+            codes = Arrays.copyOf(codes, newCapacity);
+        }
+        if (objects != null) {
+            objects = Arrays.copyOf(objects, newCapacity);
+        }
+        if (nulls != null) {
+            nulls = Arrays.copyOf(nulls, words(newCapacity));
+        }
+    }
+}
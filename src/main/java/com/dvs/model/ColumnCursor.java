@@ -0,0 +1,92 @@
+package com.dvs.model;
+
+/**
+ * Forward cursor over the values of one DataSet column, see
+ * {@link DataSet#cursor(int)}. Reading the current value through the
+ * primitive getters does not allocate, so a whole column can be scanned
+ * without boxing:
+ * <pre>
+ * ColumnCursor cursor = dataSet.cursor(1);
+ * while (cursor.next()) {
+ *     if (cursor.isNumber()) {
+ *         sum += cursor.getDouble();
+ *     }
+ * }
+ * </pre>
+ * The cursor covers the rows present when it was created.
+ */
+public final class ColumnCursor {
+
+    private final Column column;
+    private final int size;
+    private int row = -1;
+
+    ColumnCursor(Column column, int size) {
+        this.column = column;
+        this.size = size;
+    }
+
+    /**
+     * Move to the next row, returns false past the last one
+     */
+    public boolean next() {
+        if (row < size) {
+            row++;
+        }
+        return row < size;
+    }
+
+    /**
+     * Move back before the first row
+     */
+    public void reset() {
+        row = -1;
+    }
+
+    /**
+     * Index of the current row
+     */
+    public int getRow() {
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull() {
+        return column.isNull(checkRow());
+    }
+
+    public boolean isNumber() {
+        return column.isNumber(checkRow());
+    }
+
+    /**
+     * Current value as a double, NaN when missing or not a number
+     */
+    public double getDouble() {
+        return column.getDouble(checkRow());
+    }
+
+    /**
+     * Current value as a long, 0 when missing or not a number
+     */
+    public long getLong() {
+        return column.getLong(checkRow());
+    }
+
+    /**
+     * Current value boxed as an object
+     */
+    public Object getValue() {
+        return column.get(checkRow());
+    }
+
+    private int checkRow() {
+        if (row < 0 || row >= size) {
+            throw new IllegalStateException("No current row, call next() first");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,9 @@
+package com.dvs.model;
+
+/**
+ * Fills in the values of a column created with a deferred source
+ */
+interface ColumnLoader {
+
+    void load(Column column);
+}
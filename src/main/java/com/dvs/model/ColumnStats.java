@@ -0,0 +1,162 @@
+package com.dvs.model;
+
+/**
+ * Summary statistics of a dataset column, see {@link DataSet#getColumnStats(int)}.
+ * Numeric statistics cover the values that are numbers other than NaN;
+ * they are NaN when there is no such value.
+ *
+ * Columns keep their statistics up to date as values are appended or set,
+ * so reading them is a constant time lookup. Removing rows, or overwriting
+ * the current minimum or maximum, makes the column compute them again on
+ * the next query.
+ */
+public final class ColumnStats {
+
+    private ColumnType type;
+    private int rows;
+    private int count;
+    private int numericCount;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum;
+    private double sumOfSquares;
+
+    ColumnStats() {
+    }
+
+    /**
+     * Storage type of the column
+     */
+    public ColumnType getType() {
+        return type;
+    }
+
+    /**
+     * Number of rows of the column
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Number of values that are not missing
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getNullCount() {
+        return rows - count;
+    }
+
+    /**
+     * Number of values that are numbers other than NaN
+     */
+    public int getNumericCount() {
+        return numericCount;
+    }
+
+    public double getMin() {
+        return numericCount > 0 ? min : Double.NaN;
+    }
+
+    public double getMax() {
+        return numericCount > 0 ? max : Double.NaN;
+    }
+
+    public double getSum() {
+        return numericCount > 0 ? sum : Double.NaN;
+    }
+
+    public double getSumOfSquares() {
+        return numericCount > 0 ? sumOfSquares : Double.NaN;
+    }
+
+    public double getMean() {
+        return numericCount > 0 ? sum / numericCount : Double.NaN;
+    }
+
+    /**
+     * Population variance of the numeric values
+     */
+    public double getVariance() {
+        if (numericCount == 0) {
+            return Double.NaN;
+        }
+        double mean = sum / numericCount;
+        return Math.max(0, sumOfSquares / numericCount - mean * mean);
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnStats[type=" + type + ", rows=" + rows + ", count=" + count + ", numeric=" + numericCount
+            + ", min=" + getMin() + ", max=" + getMax() + ", mean=" + getMean() + "]";
+    }
+
+    // Maintenance by Column
+
+    void addNumber(double value) {
+        if (Double.isNaN(value)) {
+            count++;
+            return;
+        }
+        count++;
+        numericCount++;
+        sum += value;
+        sumOfSquares += value * value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    void addOther() {
+        count++;
+    }
+
+    /**
+     * Take a number out, returns false when the statistics must be
+     * computed again because it was the minimum or maximum
+     */
+    boolean removeNumber(double value) {
+        count--;
+        if (Double.isNaN(value)) {
+            return true;
+        }
+        numericCount--;
+        sum -= value;
+        sumOfSquares -= value * value;
+        return value > min && value < max;
+    }
+
+    void removeOther() {
+        count--;
+    }
+
+    void merge(ColumnStats other) {
+        count += other.count;
+        numericCount += other.numericCount;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Snapshot for a column of the given type and size
+     */
+    ColumnStats copy(ColumnType columnType, int rowCount) {
+        ColumnStats copy = new ColumnStats();
+        copy.type = columnType;
+        copy.rows = rowCount;
+        copy.count = count;
+        copy.numericCount = numericCount;
+        copy.min = min;
+        copy.max = max;
+        copy.sum = sum;
+        copy.sumOfSquares = sumOfSquares;
+        return copy;
+    }
+}
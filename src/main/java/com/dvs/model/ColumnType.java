@@ -0,0 +1,21 @@
+package com.dvs.model;
+
+/**
+ * Physical storage type of a dataset column
+ */
+public enum ColumnType {
+    /** No non-null value has been stored yet */
+    EMPTY,
+    /** Integral numbers stored in a long[] vector */
+    LONG,
+    /** Floating point numbers stored in a double[] vector */
+    DOUBLE,
+    /** Text stored as int codes into a string dictionary */
+    STRING,
+    /** Mixed or unsupported values stored as boxed objects */
+    OBJECT;
+
+    public boolean isNumeric() {
+        return this == LONG || this == DOUBLE;
+    }
+}
@@ -1,20 +1,30 @@
 package com.dvs.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
- * Represents a dataset containing tabular data for visualization
+ * Represents a dataset containing tabular data for visualization.
+ * Data is stored column by column in primitive vectors (see {@link Column});
+ * the row oriented accessors box values on demand.
+ *
+ * The list accessors return read-only views rather than copies, and
+ * {@link #cursor(int)} scans a column without any allocation per row.
  */
 public class DataSet {
     
     private List<String> columnNames;
-    private List<List<Object>> data;
+    private List<Column> columns;
+    private int rowCount;
     private String name;
+    private long version;
     
     public DataSet() {
         this.columnNames = new ArrayList<>();
-        this.data = new ArrayList<>();
+        this.columns = new ArrayList<>();
         this.name = "Untitled Dataset";
     }
     
@@ -23,15 +33,23 @@ public class DataSet {
         this.name = name;
     }
     
+    DataSet(String name, List<String> columnNames, List<Column> columns, int rowCount) {
+        this.columnNames = columnNames;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.name = name;
+    }
+    
     /**
      * Add a column to the dataset
      */
     public void addColumn(String columnName) {
         columnNames.add(columnName);
         // Add empty values for existing rows
-        for (List<Object> row : data) {
-            row.add(null);
-        }
+        Column column = new Column();
+        column.appendNulls(rowCount);
+        columns.add(column);
+        version++;
     }
     
     /**
@@ -41,61 +59,205 @@ public class DataSet {
         if (rowData.size() != columnNames.size()) {
             throw new IllegalArgumentException("Row data size must match number of columns");
         }
-        data.add(new ArrayList<>(rowData));
+        for (int i = 0; i < rowData.size(); i++) {
+            column(i).append(rowData.get(i));
+        }
+        rowCount++;
+        version++;
     }
     
     /**
      * Add a row of data from array
      */
     public void addRow(Object... values) {
-        List<Object> rowData = new ArrayList<>();
-        for (Object value : values) {
-            rowData.add(value);
+        if (values.length != columnNames.size()) {
+            throw new IllegalArgumentException("Row data size must match number of columns");
+        }
+        for (int i = 0; i < values.length; i++) {
+            column(i).append(values[i]);
         }
-        addRow(rowData);
+        rowCount++;
+        version++;
+    }
+    
+    /**
+     * Append all rows of another dataset with the same number of columns
+     */
+    public void appendRows(DataSet other) {
+        if (other.getColumnCount() != columnNames.size()) {
+            throw new IllegalArgumentException("Dataset must have the same number of columns");
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            column(i).appendAll(other.columns.get(i));
+        }
+        rowCount += other.rowCount;
+        version++;
+    }
+    
+    /**
+     * Remove a row, moving the following rows up
+     */
+    public void removeRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            column(i).remove(row);
+        }
+        rowCount--;
+        version++;
     }
     
     /**
      * Get value at specific row and column
      */
     public Object getValue(int row, int column) {
-        if (row >= 0 && row < data.size() && column >= 0 && column < columnNames.size()) {
-            return data.get(row).get(column);
+        if (isValidCell(row, column)) {
+            return column(column).get(row);
         }
         return null;
     }
     
+    /**
+     * Get value at specific row and column as a double.
+     * Returns NaN for missing and non-numeric values.
+     */
+    public double getDouble(int row, int column) {
+        if (isValidCell(row, column)) {
+            return column(column).getDouble(row);
+        }
+        return Double.NaN;
+    }
+    
+    /**
+     * Get value at specific row and column as a long.
+     * Returns 0 for missing and non-numeric values.
+     */
+    public long getLong(int row, int column) {
+        if (isValidCell(row, column)) {
+            return column(column).getLong(row);
+        }
+        return 0L;
+    }
+    
+    /**
+     * Check whether the value at specific row and column is numeric
+     */
+    public boolean isNumber(int row, int column) {
+        return isValidCell(row, column) && column(column).isNumber(row);
+    }
+    
+    /**
+     * Check whether the value at specific row and column is missing
+     */
+    public boolean isNull(int row, int column) {
+        return !isValidCell(row, column) || column(column).isNull(row);
+    }
+    
+    /**
+     * First row at or after the given one with a value in the column, the
+     * row count when there is none. Missing values are skipped a word of the
+     * null bitmap at a time, so loops can jump over them:
+     * <pre>
+     * for (int row = dataSet.nextNonNull(0, column); row < rows; row = dataSet.nextNonNull(row + 1, column))
+     * </pre>
+     */
+    public int nextNonNull(int row, int column) {
+        if (column < 0 || column >= columns.size()) {
+            return rowCount;
+        }
+        return column(column).nextNonNull(Math.max(0, row));
+    }
+    
+    /**
+     * Rows whose value in the column equals the given one, in ascending
+     * order. Text columns are matched on their dictionary codes, so the
+     * value is hashed once rather than once per row.
+     */
+    public int[] findRows(int column, Object value) {
+        if (column < 0 || column >= columns.size()) {
+            return new int[0];
+        }
+        return column(column).findRows(value);
+    }
+    
+    /**
+     * New dataset holding the given rows, in that order, for instance those
+     * of {@link #findRows(int, Object)}
+     */
+    public DataSet selectRows(int[] rows) {
+        for (int row : rows) {
+            if (row < 0 || row >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+            }
+        }
+        List<Column> selected = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            selected.add(column(i).select(rows));
+        }
+        return new DataSet(name, new ArrayList<>(columnNames), selected, rows.length);
+    }
+    
     /**
      * Set value at specific row and column
      */
     public void setValue(int row, int column, Object value) {
-        if (row >= 0 && row < data.size() && column >= 0 && column < columnNames.size()) {
-            data.get(row).set(column, value);
+        if (isValidCell(row, column)) {
+            column(column).set(row, value);
+            version++;
         }
     }
     
     /**
-     * Get column data as a list
+     * Get column data as a read-only list, reading and boxing each value
+     * when it is accessed. Empty for an unknown column. The list is a live
+     * view: it follows later changes, including removed rows, and must not
+     * be used once its column is removed.
      */
     public List<Object> getColumnData(int columnIndex) {
-        List<Object> columnData = new ArrayList<>();
-        for (List<Object> row : data) {
-            if (columnIndex < row.size()) {
-                columnData.add(row.get(columnIndex));
-            }
+        if (columnIndex < 0 || columnIndex >= columns.size()) {
+            return Collections.emptyList();
         }
-        return columnData;
+        return new ColumnView(columnIndex);
     }
     
     /**
      * Get column data by name
      */
     public List<Object> getColumnData(String columnName) {
-        int index = columnNames.indexOf(columnName);
-        if (index >= 0) {
-            return getColumnData(index);
-        }
-        return new ArrayList<>();
+        return getColumnData(columnNames.indexOf(columnName));
+    }
+    
+    /**
+     * Storage type of a column, known without reading its values
+     */
+    public ColumnType getColumnType(int column) {
+        return columns.get(column).getType();
+    }
+    
+    /**
+     * Check whether a column holds numbers, see {@link #getColumnType(int)}.
+     * A column of mixed values counts as numeric when its first value is a number.
+     */
+    public boolean isNumericColumn(int column) {
+        ColumnType type = getColumnType(column);
+        return type.isNumeric() || type == ColumnType.OBJECT && isNumber(0, column);
+    }
+    
+    /**
+     * Count, missing values, min, max, sum and sum of squares of a column,
+     * maintained as rows are added and values set
+     */
+    public ColumnStats getColumnStats(int column) {
+        return column(column).getStats();
+    }
+    
+    /**
+     * Cursor over the values of a column, from the first row to the current
+     * row count
+     */
+    public ColumnCursor cursor(int column) {
+        return new ColumnCursor(column(column), rowCount);
     }
     
     /**
@@ -106,7 +268,7 @@ public class DataSet {
         
         // Add column headers
         sb.append("Dataset: ").append(name).append("\n");
-        sb.append("Rows: ").append(data.size()).append(", Columns: ").append(columnNames.size()).append("\n\n");
+        sb.append("Rows: ").append(rowCount).append(", Columns: ").append(columnNames.size()).append("\n\n");
         
         // Add column names
         for (int i = 0; i < columnNames.size(); i++) {
@@ -127,11 +289,10 @@ public class DataSet {
         sb.append("\n");
         
         // Add data rows (limit to first 10 rows for preview)
-        int maxRows = Math.min(data.size(), 10);
+        int maxRows = Math.min(rowCount, 10);
         for (int i = 0; i < maxRows; i++) {
-            List<Object> row = data.get(i);
             for (int j = 0; j < columnNames.size(); j++) {
-                Object value = j < row.size() ? row.get(j) : "";
+                Object value = getValue(i, j);
                 String valueStr = value != null ? value.toString() : "null";
                 sb.append(String.format("%-15s", valueStr.length() > 15 ? valueStr.substring(0, 12) + "..." : valueStr));
                 if (j < columnNames.size() - 1) {
@@ -141,31 +302,68 @@ public class DataSet {
             sb.append("\n");
         }
         
-        if (data.size() > 10) {
-            sb.append("... and ").append(data.size() - 10).append(" more rows\n");
+        if (rowCount > 10) {
+            sb.append("... and ").append(rowCount - 10).append(" more rows\n");
         }
         
         return sb.toString();
     }
     
     // Getters and setters
+    
+    /**
+     * Read-only view of the column names
+     */
     public List<String> getColumnNames() {
-        return new ArrayList<>(columnNames);
+        return Collections.unmodifiableList(columnNames);
+    }
+    
+    public String getColumnName(int column) {
+        return columnNames.get(column);
     }
     
     public void setColumnNames(List<String> columnNames) {
         this.columnNames = new ArrayList<>(columnNames);
+        // Keep one column vector per name
+        while (columns.size() > this.columnNames.size()) {
+            columns.remove(columns.size() - 1);
+        }
+        while (columns.size() < this.columnNames.size()) {
+            Column column = new Column();
+            column.appendNulls(rowCount);
+            columns.add(column);
+        }
+        version++;
     }
     
+    /**
+     * Read-only view of the rows, each row reading its values when accessed.
+     * Like {@link #getColumnData(int)} the view follows later changes; copy
+     * it to keep the current rows.
+     */
     public List<List<Object>> getData() {
-        return new ArrayList<>(data);
+        return new RowsView();
     }
     
+    /**
+     * Replace the rows. The data is copied before the current rows are
+     * dropped, so it may be a view of this dataset.
+     */
     public void setData(List<List<Object>> data) {
-        this.data = new ArrayList<>();
+        List<Column> filled = new ArrayList<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            filled.add(new Column());
+        }
+        int rows = 0;
         for (List<Object> row : data) {
-            this.data.add(new ArrayList<>(row));
+            for (int i = 0; i < filled.size(); i++) {
+                filled.get(i).append(i < row.size() ? row.get(i) : null);
+            }
+            rows++;
         }
+        this.columns = filled;
+        this.rowCount = rows;
+        version++;
     }
     
     public String getName() {
@@ -174,10 +372,11 @@ public class DataSet {
     
     public void setName(String name) {
         this.name = name;
+        version++;
     }
     
     public int getRowCount() {
-        return data.size();
+        return rowCount;
     }
     
     public int getColumnCount() {
@@ -185,11 +384,92 @@ public class DataSet {
     }
     
     public boolean isEmpty() {
-        return data.isEmpty() || columnNames.isEmpty();
+        return rowCount == 0 || columnNames.isEmpty();
     }
     
     public void clear() {
-        data.clear();
+        columns.clear();
         columnNames.clear();
+        rowCount = 0;
+        version++;
+    }
+    
+    /**
+     * Modification count, incremented by every change to the name, columns
+     * or values. Results derived from the dataset, such as cached charts,
+     * are valid as long as the version they were computed at is current.
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Storage of a column, with deferred values loaded
+     */
+    Column column(int index) {
+        Column column = columns.get(index);
+        column.ensureLoaded();
+        return column;
+    }
+    
+    private boolean isValidCell(int row, int column) {
+        return row >= 0 && row < rowCount && column >= 0 && column < columns.size();
+    }
+    
+    private final class ColumnView extends AbstractList<Object> implements RandomAccess {
+        private final int column;
+        
+        ColumnView(int column) {
+            this.column = column;
+        }
+        
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + rowCount);
+            }
+            return column(column).get(index);
+        }
+        
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+    
+    private final class RowsView extends AbstractList<List<Object>> implements RandomAccess {
+        @Override
+        public List<Object> get(int row) {
+            if (row < 0 || row >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+            }
+            return new RowView(row);
+        }
+        
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+    
+    private final class RowView extends AbstractList<Object> implements RandomAccess {
+        private final int row;
+        
+        RowView(int row) {
+            this.row = row;
+        }
+        
+        @Override
+        public Object get(int index) {
+            if (row >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+            }
+            return column(index).get(row);
+        }
+        
+        @Override
+        public int size() {
+            return columns.size();
+        }
     }
 }
@@ -0,0 +1,67 @@
+package com.dvs.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates rows cell by cell straight into columnar storage.
+ * Loaders use it to append primitive values without boxing them; every
+ * column must receive exactly one value before {@link #endRow()} is called.
+ */
+public class DataSetBuilder {
+
+    private final List<String> columnNames;
+    private final List<Column> columns;
+    private int rowCount;
+
+    public DataSetBuilder(List<String> columnNames) {
+        this.columnNames = new ArrayList<>(columnNames);
+        this.columns = new ArrayList<>(columnNames.size());
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.add(new Column());
+        }
+    }
+
+    public void appendLong(int column, long value) {
+        columns.get(column).appendLong(value);
+    }
+
+    public void appendDouble(int column, double value) {
+        columns.get(column).appendDouble(value);
+    }
+
+    public void appendNull(int column) {
+        columns.get(column).appendNulls(1);
+    }
+
+    /**
+     * Append a boxed value (String, Number or null)
+     */
+    public void appendValue(int column, Object value) {
+        columns.get(column).append(value);
+    }
+
+    /**
+     * Complete the current row
+     */
+    public void endRow() {
+        rowCount++;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Create a dataset holding the accumulated rows.
+     * The builder must not be used afterwards.
+     */
+    public DataSet build(String name) {
+        for (Column column : columns) {
+            if (column.size() != rowCount) {
+                throw new IllegalStateException("Every column must hold one value per row");
+            }
+        }
+        return new DataSet(name, columnNames, columns, rowCount);
+    }
+}
@@ -0,0 +1,356 @@
+package com.dvs.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the native binary snapshot format (.dvsb).
+ *
+ * A snapshot starts with a header holding the schema (dataset name, row
+ * count and for every column its name, type and block location), followed
+ * by one block per column: the null mask words, the primitive values (or
+ * dictionary codes) and, for text columns, the string dictionary.
+ *
+ * Reading only parses the header. Every column block is memory mapped and
+ * decoded the first time the column is accessed, so reopening a dataset is
+ * cheap and only the pages of the columns actually used are read.
+ */
+public final class DataSetSnapshot {
+
+    /** File name extension of snapshot files */
+    public static final String EXTENSION = ".dvsb";
+
+    private static final byte[] MAGIC = {'D', 'V', 'S', 'B'};
+    private static final int VERSION = 1;
+
+    // Value tags of OBJECT columns
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INTEGER = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_STRING = 4;
+
+    private DataSetSnapshot() {
+    }
+
+    /**
+     * Check whether a file name has the snapshot extension
+     */
+    public static boolean isSnapshotFile(File file) {
+        return file.getName().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Write a dataset to a snapshot file
+     */
+    public static void write(DataSet dataSet, File file) throws IOException {
+        int rows = dataSet.getRowCount();
+        List<String> names = dataSet.getColumnNames();
+        BlockInfo[] blocks = new BlockInfo[names.size()];
+        // Loads every column first, the file may be the one the dataset was read from
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new BlockInfo(dataSet.column(i), rows);
+        }
+        // Offsets do not change the header length, so reserve it up front
+        int headerLength = encodeHeader(dataSet.getName(), rows, names, blocks).length;
+
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            FileChannel channel = stream.getChannel();
+            channel.position(headerLength);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            long offset = headerLength;
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i].offset = offset;
+                writeBlock(out, dataSet.column(i), rows, blocks[i]);
+                offset += blocks[i].length();
+            }
+            out.flush();
+
+            channel.position(0);
+            byte[] header = encodeHeader(dataSet.getName(), rows, names, blocks);
+            stream.write(header);
+        }
+    }
+
+    /**
+     * Open a snapshot file. Column values are loaded lazily from the mapped file.
+     */
+    public static DataSet read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a dataset snapshot: " + file.getName());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            String name = in.readUTF();
+            int rows = in.readInt();
+            int columnCount = in.readInt();
+
+            long fileSize = channel.size();
+            List<String> names = new ArrayList<>(columnCount);
+            List<Column> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                names.add(in.readUTF());
+                BlockInfo block = BlockInfo.read(in);
+                if (block.offset + block.length() > fileSize) {
+                    throw new IOException("Truncated snapshot: " + file.getName());
+                }
+                columns.add(new Column(block.type, rows, new MappedColumnLoader(channel, block, rows)));
+            }
+            return new DataSet(name, names, columns, rows);
+        }
+    }
+
+    private static byte[] encodeHeader(String name, int rows, List<String> names, BlockInfo[] blocks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(name != null ? name : "");
+        out.writeInt(rows);
+        out.writeInt(blocks.length);
+        for (int i = 0; i < blocks.length; i++) {
+            out.writeUTF(names.get(i) != null ? names.get(i) : "");
+            blocks[i].write(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeBlock(DataOutputStream out, Column column, int rows, BlockInfo block) throws IOException {
+        for (long word : column.nullWords(rows)) {
+            out.writeLong(word);
+        }
+        switch (block.type) {
+            case LONG:
+                long[] longs = column.longValues();
+                for (int row = 0; row < rows; row++) {
+                    out.writeLong(longs[row]);
+                }
+                block.valuesLength = 8L * rows;
+                break;
+            case DOUBLE:
+                double[] doubles = column.doubleValues();
+                for (int row = 0; row < rows; row++) {
+                    out.writeDouble(doubles[row]);
+                }
+                block.valuesLength = 8L * rows;
+                break;
+            case STRING:
+                int[] codes = column.codeValues();
+                for (int row = 0; row < rows; row++) {
+                    out.writeInt(codes[row]);
+                }
+                block.valuesLength = 4L * rows;
+                StringDictionary dictionary = column.dictionary();
+                out.writeInt(dictionary.size());
+                block.dictionaryLength = 4;
+                for (int code = 0; code < dictionary.size(); code++) {
+                    block.dictionaryLength += writeString(out, dictionary.decode(code));
+                }
+                break;
+            case OBJECT:
+                for (int row = 0; row < rows; row++) {
+                    block.valuesLength += writeObject(out, column.get(row));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Write a tagged OBJECT column value and return the number of bytes written.
+     * Values that are neither numbers nor strings are stored as their text.
+     */
+    private static int writeObject(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+            return 1;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt(((Number) value).intValue());
+            return 5;
+        }
+        if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+            return 9;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+            return 9;
+        }
+        out.writeByte(TAG_STRING);
+        return 1 + writeString(out, value.toString());
+    }
+
+    private static int writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Schema entry of a column and the location of its block
+     */
+    private static final class BlockInfo {
+        final ColumnType type;
+        final boolean integerValues;
+        final int nullWords;
+        long offset;
+        long valuesLength;
+        long dictionaryLength;
+
+        BlockInfo(Column column, int rows) {
+            this.type = column.getType();
+            this.integerValues = column.hasIntegerValues();
+            this.nullWords = column.nullWords(rows).length;
+        }
+
+        private BlockInfo(ColumnType type, boolean integerValues, int nullWords) {
+            this.type = type;
+            this.integerValues = integerValues;
+            this.nullWords = nullWords;
+        }
+
+        long length() {
+            return 8L * nullWords + valuesLength + dictionaryLength;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(type.name());
+            out.writeBoolean(integerValues);
+            out.writeInt(nullWords);
+            out.writeLong(offset);
+            out.writeLong(valuesLength);
+            out.writeLong(dictionaryLength);
+        }
+
+        static BlockInfo read(DataInputStream in) throws IOException {
+            ColumnType type;
+            try {
+                type = ColumnType.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown column type in snapshot", e);
+            }
+            BlockInfo block = new BlockInfo(type, in.readBoolean(), in.readInt());
+            block.offset = in.readLong();
+            block.valuesLength = in.readLong();
+            block.dictionaryLength = in.readLong();
+            return block;
+        }
+    }
+
+    /**
+     * Decodes a column block from mapped regions of the snapshot file.
+     * Mapping does not read anything; pages are only faulted in by load().
+     */
+    private static final class MappedColumnLoader implements ColumnLoader {
+        private final BlockInfo block;
+        private final int rows;
+        private final ByteBuffer nulls;
+        private final ByteBuffer values;
+        private final ByteBuffer dictionary;
+
+        MappedColumnLoader(FileChannel channel, BlockInfo block, int rows) throws IOException {
+            this.block = block;
+            this.rows = rows;
+            long nullsLength = 8L * block.nullWords;
+            this.nulls = map(channel, block.offset, nullsLength);
+            this.values = map(channel, block.offset + nullsLength, block.valuesLength);
+            this.dictionary = map(channel, block.offset + nullsLength + block.valuesLength, block.dictionaryLength);
+        }
+
+        private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+            return length > 0 ? channel.map(FileChannel.MapMode.READ_ONLY, offset, length) : ByteBuffer.allocate(0);
+        }
+
+        @Override
+        public void load(Column column) {
+            long[] words = new long[block.nullWords];
+            nulls.asLongBuffer().get(words);
+            column.restoreNulls(words);
+
+            switch (block.type) {
+                case LONG:
+                    long[] longs = new long[rows];
+                    values.asLongBuffer().get(longs);
+                    column.restoreLongs(longs, block.integerValues);
+                    break;
+                case DOUBLE:
+                    double[] doubles = new double[rows];
+                    values.asDoubleBuffer().get(doubles);
+                    column.restoreDoubles(doubles);
+                    break;
+                case STRING:
+                    int[] codes = new int[rows];
+                    values.asIntBuffer().get(codes);
+                    StringDictionary strings = new StringDictionary();
+                    int size = dictionary.getInt();
+                    for (int code = 0; code < size; code++) {
+                        strings.encode(readString(dictionary));
+                    }
+                    column.restoreStrings(codes, strings);
+                    break;
+                case OBJECT:
+                    column.restoreObjects(readObjects());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private Object[] readObjects() {
+            Object[] objects = new Object[rows];
+            for (int row = 0; row < rows; row++) {
+                byte tag = values.get();
+                switch (tag) {
+                    case TAG_INTEGER:
+                        objects[row] = values.getInt();
+                        break;
+                    case TAG_LONG:
+                        objects[row] = values.getLong();
+                        break;
+                    case TAG_DOUBLE:
+                        objects[row] = values.getDouble();
+                        break;
+                    case TAG_STRING:
+                        objects[row] = readString(values);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return objects;
+        }
+    }
+}
@@ -0,0 +1,683 @@
+package com.dvs.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Group-by aggregation of a value column per distinct value of a key column.
+ *
+ * Large datasets are cut into contiguous row partitions aggregated in
+ * parallel, each into its own table of groups with primitive accumulators,
+ * and the partial tables are merged in partition order. Text keys are
+ * grouped directly on their dictionary codes, integral keys in an open
+ * addressing table of longs; only other key types are boxed.
+ *
+ * Missing keys form a group of their own. Groups are returned in the order
+ * of their first row.
+ *
+ * High cardinality keys can be limited to the groups with the largest
+ * aggregates, picked with a bounded heap, the other groups being folded into
+ * a single {@link #OTHER} group.
+ *
+ * {@link #pivot} groups on two keys at once and lays the result out as a
+ * cross tab, one row per row key and one column per column key.
+ */
+public class GroupBy {
+
+    /**
+     * Key of the group holding the groups beyond the limit, extended when a
+     * real key has the same label so the two never merge in a chart
+     */
+    public static final String OTHER = "Other";
+
+    /** Datasets with fewer rows are aggregated on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    /** Number of rows aggregated between two cancellation checks */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+
+    private final int parallelism;
+
+    public GroupBy() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GroupBy(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Aggregate the value column per distinct value of the key column.
+     * Returns a dataset with the key column and one aggregate column; groups
+     * without any numeric value get a missing aggregate, except for COUNT.
+     * Interrupting the calling thread stops with a CancellationException.
+     */
+    public DataSet aggregate(DataSet dataSet, int keyColumn, int valueColumn, AggregateFunction function) {
+        return aggregate(dataSet, keyColumn, valueColumn, function, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Aggregate like {@link #aggregate(DataSet, int, int, AggregateFunction)}
+     * but keep only the maxGroups groups with the largest aggregates, in first
+     * row order, followed by an {@link #OTHER} group aggregating the rows of
+     * all the others. Groups without any numeric value rank last.
+     */
+    public DataSet aggregate(DataSet dataSet, int keyColumn, int valueColumn, AggregateFunction function,
+            int maxGroups) {
+        if (maxGroups < 1) {
+            throw new IllegalArgumentException("At least one group must be kept: " + maxGroups);
+        }
+        Column keys = dataSet.column(keyColumn);
+        Column values = dataSet.column(valueColumn);
+        int rows = dataSet.getRowCount();
+
+        Groups groups;
+        if (parallelism == 1 || rows < PARALLEL_THRESHOLD) {
+            groups = aggregateRange(keys, values, 0, rows, null);
+        } else {
+            groups = aggregateParallel(keys, values, rows);
+        }
+
+        List<String> names = dataSet.getColumnNames();
+        DataSetBuilder builder = new DataSetBuilder(Arrays.asList(names.get(keyColumn),
+            function.columnName(names.get(valueColumn))));
+        int[] ordered = inFirstRowOrder(groups.firstRow, groups.capacity);
+        if (ordered.length <= maxGroups) {
+            for (int group : ordered) {
+                builder.appendValue(0, keys.get(groups.firstRow[group]));
+                appendAggregate(builder, 1, groups, group, function);
+                builder.endRow();
+            }
+            return builder.build(dataSet.getName());
+        }
+
+        boolean[] kept = largestGroups(groups, ordered, function, maxGroups);
+        int other = groups.capacity;
+        groups.ensureCapacity(other + 1);
+        Set<String> labels = new HashSet<>();
+        for (int group : ordered) {
+            labels.add(String.valueOf(keys.get(groups.firstRow[group])));
+            if (kept[group]) {
+                builder.appendValue(0, keys.get(groups.firstRow[group]));
+                appendAggregate(builder, 1, groups, group, function);
+                builder.endRow();
+            } else {
+                groups.fold(group, other);
+            }
+        }
+        builder.appendValue(0, otherLabel(labels, ordered.length - maxGroups));
+        appendAggregate(builder, 1, groups, other, function);
+        builder.endRow();
+        return builder.build(dataSet.getName());
+    }
+
+    /**
+     * Label of the folded group: {@link #OTHER}, unless a key already reads
+     * that way, in which case the number of folded groups is added and, if
+     * that is taken too, a counter
+     */
+    private static String otherLabel(Set<String> labels, int folded) {
+        if (!labels.contains(OTHER)) {
+            return OTHER;
+        }
+        String label = OTHER + " (" + folded + (folded == 1 ? " category)" : " categories)");
+        String unique = label;
+        for (int i = 2; labels.contains(unique); i++) {
+            unique = label + " " + i;
+        }
+        return unique;
+    }
+
+    /**
+     * Mark the maxGroups groups with the largest aggregates. A min-heap of
+     * the kept groups is maintained so each group costs O(log maxGroups);
+     * ties go to the group seen first.
+     */
+    private static boolean[] largestGroups(Groups groups, int[] ordered, AggregateFunction function, int maxGroups) {
+        // Positions in ordered, the heap root being the lowest ranked kept group
+        int[] heap = new int[maxGroups];
+        double[] scores = new double[maxGroups];
+        int size = 0;
+        for (int position = 0; position < ordered.length; position++) {
+            double score = score(groups, ordered[position], function);
+            int slot;
+            if (size < maxGroups) {
+                slot = size++;
+                while (slot > 0 && ranksBelow(score, position, scores[(slot - 1) / 2], heap[(slot - 1) / 2])) {
+                    heap[slot] = heap[(slot - 1) / 2];
+                    scores[slot] = scores[(slot - 1) / 2];
+                    slot = (slot - 1) / 2;
+                }
+            } else if (score > scores[0]) {
+                // Replace the lowest ranked kept group
+                slot = 0;
+                while (2 * slot + 1 < size) {
+                    int child = 2 * slot + 1;
+                    if (child + 1 < size && ranksBelow(scores[child + 1], heap[child + 1], scores[child], heap[child])) {
+                        child++;
+                    }
+                    if (!ranksBelow(scores[child], heap[child], score, position)) {
+                        break;
+                    }
+                    heap[slot] = heap[child];
+                    scores[slot] = scores[child];
+                    slot = child;
+                }
+            } else {
+                continue;
+            }
+            heap[slot] = position;
+            scores[slot] = score;
+        }
+
+        boolean[] kept = new boolean[groups.capacity];
+        for (int i = 0; i < size; i++) {
+            kept[ordered[heap[i]]] = true;
+        }
+        return kept;
+    }
+
+    private static boolean ranksBelow(double score, int position, double otherScore, int otherPosition) {
+        return score < otherScore || (score == otherScore && position > otherPosition);
+    }
+
+    /**
+     * Value a group is ranked by, negative infinity for a missing aggregate
+     */
+    private static double score(Groups groups, int group, AggregateFunction function) {
+        if (function == AggregateFunction.COUNT) {
+            return groups.rowCounts[group];
+        }
+        long count = groups.valueCounts[group];
+        if (count == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        switch (function) {
+            case MEAN:
+                return groups.sums[group] / count;
+            case MIN:
+                return groups.mins[group];
+            case MAX:
+                return groups.maxs[group];
+            default:
+                return groups.sums[group];
+        }
+    }
+
+    /**
+     * Cross tab of the value column aggregated per (row key, column key) pair,
+     * computed in a single pass. The result has the row key column followed by
+     * one column per distinct column key, named after the key; pairs that do
+     * not occur (and, except for COUNT, pairs without numeric values) are missing.
+     * Interrupting the calling thread stops with a CancellationException.
+     */
+    public DataSet pivot(DataSet dataSet, int rowKeyColumn, int columnKeyColumn, int valueColumn,
+            AggregateFunction function) {
+        Column rowKeys = dataSet.column(rowKeyColumn);
+        Column columnKeys = dataSet.column(columnKeyColumn);
+        CellKeys cells = new CellKeys(GroupKeys.forColumn(rowKeys), GroupKeys.forColumn(columnKeys));
+        Groups groups = new Groups(cells);
+        Column values = dataSet.column(valueColumn);
+        for (int row = 0; row < dataSet.getRowCount(); row++) {
+            if (row % CANCEL_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Aggregation cancelled");
+            }
+            groups.add(row, values);
+        }
+
+        int[] rowGroups = inFirstRowOrder(cells.rowFirst, cells.rowGroups);
+        int[] columnGroups = inFirstRowOrder(cells.columnFirst, cells.columnGroups);
+        List<String> names = new ArrayList<>(columnGroups.length + 1);
+        names.add(dataSet.getColumnNames().get(rowKeyColumn));
+        for (int columnGroup : columnGroups) {
+            names.add(String.valueOf(columnKeys.get(cells.columnFirst[columnGroup])));
+        }
+
+        DataSetBuilder builder = new DataSetBuilder(names);
+        for (int rowGroup : rowGroups) {
+            builder.appendValue(0, rowKeys.get(cells.rowFirst[rowGroup]));
+            for (int i = 0; i < columnGroups.length; i++) {
+                int cell = cells.find(rowGroup, columnGroups[i]);
+                if (cell < 0) {
+                    builder.appendNull(i + 1);
+                } else {
+                    appendAggregate(builder, i + 1, groups, cell, function);
+                }
+            }
+            builder.endRow();
+        }
+        return builder.build(dataSet.getName());
+    }
+
+    private Groups aggregateParallel(Column keys, Column values, int rows) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ForkJoinTask<Groups>> partitions = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            int from = (int) ((long) rows * i / parallelism);
+            int to = (int) ((long) rows * (i + 1) / parallelism);
+            partitions.add(ForkJoinPool.commonPool().submit(() -> aggregateRange(keys, values, from, to, cancelled)));
+        }
+
+        try {
+            Groups groups = partitions.get(0).get();
+            for (int i = 1; i < partitions.size(); i++) {
+                groups.merge(partitions.get(i).get());
+            }
+            return groups;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Aggregation cancelled");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Aggregation failed", e.getCause());
+        } finally {
+            // Stops the partitions still running after a failure
+            cancelled.set(true);
+        }
+    }
+
+    /**
+     * Aggregate rows [from, to). Stops when the flag is raised, or when the
+     * thread is interrupted if there is no flag.
+     */
+    private static Groups aggregateRange(Column keys, Column values, int from, int to, AtomicBoolean cancelled) {
+        Groups groups = new Groups(GroupKeys.forColumn(keys));
+        for (int row = from; row < to; row++) {
+            if ((row - from) % CANCEL_CHECK_INTERVAL == 0
+                    && (cancelled != null ? cancelled.get() : Thread.currentThread().isInterrupted())) {
+                throw new CancellationException("Aggregation cancelled");
+            }
+            groups.add(row, values);
+        }
+        return groups;
+    }
+
+    private static void appendAggregate(DataSetBuilder builder, int column, Groups groups, int group,
+            AggregateFunction function) {
+        if (function == AggregateFunction.COUNT) {
+            builder.appendLong(column, groups.rowCounts[group]);
+            return;
+        }
+        long count = groups.valueCounts[group];
+        if (count == 0) {
+            builder.appendNull(column);
+            return;
+        }
+        switch (function) {
+            case MEAN:
+                builder.appendDouble(column, groups.sums[group] / count);
+                break;
+            case MIN:
+                builder.appendDouble(column, groups.mins[group]);
+                break;
+            case MAX:
+                builder.appendDouble(column, groups.maxs[group]);
+                break;
+            default:
+                builder.appendDouble(column, groups.sums[group]);
+                break;
+        }
+    }
+
+    /**
+     * Ids in [0, count) that have a first row, sorted by first row
+     */
+    private static int[] inFirstRowOrder(int[] firstRow, int count) {
+        long[] packed = new long[count];
+        int used = 0;
+        for (int id = 0; id < count; id++) {
+            if (firstRow[id] >= 0) {
+                packed[used++] = ((long) firstRow[id] << 32) | id;
+            }
+        }
+        Arrays.sort(packed, 0, used);
+        int[] ids = new int[used];
+        for (int i = 0; i < used; i++) {
+            ids[i] = (int) packed[i];
+        }
+        return ids;
+    }
+
+    /**
+     * Accumulators of the groups seen in a range of rows, indexed by group id.
+     * Unused ids (possible with dictionary codes) have no first row.
+     */
+    private static final class Groups {
+        private final GroupKeys keys;
+        int capacity;
+        int[] firstRow = new int[0];
+        long[] rowCounts = new long[0];
+        long[] valueCounts = new long[0];
+        double[] sums = new double[0];
+        double[] mins = new double[0];
+        double[] maxs = new double[0];
+
+        Groups(GroupKeys keys) {
+            this.keys = keys;
+            ensureCapacity(keys.expectedGroups());
+        }
+
+        void add(int row, Column values) {
+            int group = keys.groupOf(row);
+            if (group >= capacity) {
+                ensureCapacity(group + 1);
+            }
+            if (firstRow[group] < 0) {
+                firstRow[group] = row;
+            }
+            rowCounts[group]++;
+            if (values.isNumber(row)) {
+                double value = values.getDouble(row);
+                valueCounts[group]++;
+                sums[group] += value;
+                mins[group] = Math.min(mins[group], value);
+                maxs[group] = Math.max(maxs[group], value);
+            }
+        }
+
+        /**
+         * Add the accumulators of a partition covering later rows
+         */
+        void merge(Groups other) {
+            for (int source = 0; source < other.capacity; source++) {
+                if (other.firstRow[source] < 0) {
+                    continue;
+                }
+                int group = keys.groupOf(other.firstRow[source]);
+                if (group >= capacity) {
+                    ensureCapacity(group + 1);
+                }
+                if (firstRow[group] < 0) {
+                    firstRow[group] = other.firstRow[source];
+                }
+                rowCounts[group] += other.rowCounts[source];
+                valueCounts[group] += other.valueCounts[source];
+                sums[group] += other.sums[source];
+                mins[group] = Math.min(mins[group], other.mins[source]);
+                maxs[group] = Math.max(maxs[group], other.maxs[source]);
+            }
+        }
+
+        /**
+         * Add the accumulators of one group to another one
+         */
+        void fold(int source, int target) {
+            if (firstRow[target] < 0 || firstRow[source] < firstRow[target]) {
+                firstRow[target] = firstRow[source];
+            }
+            rowCounts[target] += rowCounts[source];
+            valueCounts[target] += valueCounts[source];
+            sums[target] += sums[source];
+            mins[target] = Math.min(mins[target], mins[source]);
+            maxs[target] = Math.max(maxs[target], maxs[source]);
+        }
+
+        void ensureCapacity(int required) {
+            if (required <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(required, Math.max(16, capacity + (capacity >> 1)));
+            firstRow = Arrays.copyOf(firstRow, newCapacity);
+            rowCounts = Arrays.copyOf(rowCounts, newCapacity);
+            valueCounts = Arrays.copyOf(valueCounts, newCapacity);
+            sums = Arrays.copyOf(sums, newCapacity);
+            mins = Arrays.copyOf(mins, newCapacity);
+            maxs = Arrays.copyOf(maxs, newCapacity);
+            Arrays.fill(firstRow, capacity, newCapacity, -1);
+            Arrays.fill(mins, capacity, newCapacity, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, capacity, newCapacity, Double.NEGATIVE_INFINITY);
+            capacity = newCapacity;
+        }
+    }
+
+    /**
+     * Maps the key of a row to a dense group id
+     */
+    private abstract static class GroupKeys {
+
+        abstract int groupOf(int row);
+
+        /**
+         * Number of groups expected, used to size the accumulators
+         */
+        int expectedGroups() {
+            return 16;
+        }
+
+        static GroupKeys forColumn(Column column) {
+            switch (column.getType()) {
+                case STRING:
+                    return new CodeKeys(column);
+                case LONG:
+                    return new LongKeys(column);
+                default:
+                    return new ObjectKeys(column);
+            }
+        }
+    }
+
+    /**
+     * Dictionary codes are already dense: the group id is the code, missing values use the last id
+     */
+    private static final class CodeKeys extends GroupKeys {
+        private final Column column;
+        private final int[] codes;
+        private final int nullGroup;
+
+        CodeKeys(Column column) {
+            this.column = column;
+            this.codes = column.codeValues();
+            this.nullGroup = column.dictionary().size();
+        }
+
+        @Override
+        int groupOf(int row) {
+            return column.isNull(row) ? nullGroup : codes[row];
+        }
+
+        @Override
+        int expectedGroups() {
+            return nullGroup + 1;
+        }
+    }
+
+    /**
+     * Groups on integral keys through a {@link LongTable}
+     */
+    private static final class LongKeys extends GroupKeys {
+        private final Column column;
+        private final long[] longs;
+        private final LongTable table = new LongTable();
+        private int nullGroup = -1;
+
+        LongKeys(Column column) {
+            this.column = column;
+            this.longs = column.longValues();
+        }
+
+        @Override
+        int groupOf(int row) {
+            if (column.isNull(row)) {
+                if (nullGroup < 0) {
+                    nullGroup = table.reserve();
+                }
+                return nullGroup;
+            }
+            return table.getOrAdd(longs[row]);
+        }
+    }
+
+    /**
+     * Groups on the (row key, column key) pair of a pivot. Each pair gets a
+     * cell id; the first row of every row key and column key is tracked to
+     * order and label the cross tab.
+     */
+    private static final class CellKeys extends GroupKeys {
+        private final GroupKeys rowKeys;
+        private final GroupKeys columnKeys;
+        private final LongTable cells = new LongTable();
+        int[] rowFirst = new int[0];
+        int[] columnFirst = new int[0];
+        int rowGroups;
+        int columnGroups;
+
+        CellKeys(GroupKeys rowKeys, GroupKeys columnKeys) {
+            this.rowKeys = rowKeys;
+            this.columnKeys = columnKeys;
+        }
+
+        @Override
+        int groupOf(int row) {
+            int rowGroup = rowKeys.groupOf(row);
+            if (rowGroup >= rowGroups) {
+                rowFirst = grow(rowFirst, rowGroup);
+                rowGroups = rowGroup + 1;
+            }
+            if (rowFirst[rowGroup] < 0) {
+                rowFirst[rowGroup] = row;
+            }
+            int columnGroup = columnKeys.groupOf(row);
+            if (columnGroup >= columnGroups) {
+                columnFirst = grow(columnFirst, columnGroup);
+                columnGroups = columnGroup + 1;
+            }
+            if (columnFirst[columnGroup] < 0) {
+                columnFirst[columnGroup] = row;
+            }
+            return cells.getOrAdd(cellKey(rowGroup, columnGroup));
+        }
+
+        /**
+         * Cell id of a pair, or -1 if it never occurred
+         */
+        int find(int rowGroup, int columnGroup) {
+            return cells.get(cellKey(rowGroup, columnGroup));
+        }
+
+        private static long cellKey(int rowGroup, int columnGroup) {
+            return ((long) rowGroup << 32) | columnGroup;
+        }
+
+        /**
+         * Make room for index, filling new slots with -1
+         */
+        private static int[] grow(int[] array, int index) {
+            if (index < array.length) {
+                return array;
+            }
+            int oldLength = array.length;
+            int[] grown = Arrays.copyOf(array, Math.max(index + 1, Math.max(16, oldLength * 2)));
+            Arrays.fill(grown, oldLength, grown.length, -1);
+            return grown;
+        }
+    }
+
+    /**
+     * Open addressing table from long keys to dense ids
+     */
+    private static final class LongTable {
+        private long[] keys = new long[64];
+        private int[] ids = new int[64]; // id + 1, 0 for an empty slot
+        private int size;
+        private int used;
+
+        /**
+         * Id of a key, or -1 if absent
+         */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ids[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return ids[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Id of a key, assigning the next id if the key is new
+         */
+        int getOrAdd(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (ids[slot] != 0) {
+                if (keys[slot] == key) {
+                    return ids[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int id = size++;
+            keys[slot] = key;
+            ids[slot] = id + 1;
+            if (++used * 2 > keys.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        /**
+         * Take the next id without a key
+         */
+        int reserve() {
+            return size++;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new long[oldKeys.length * 2];
+            ids = new int[oldIds.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (ids[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Boxed keys for floating point and mixed columns
+     */
+    private static final class ObjectKeys extends GroupKeys {
+        private final Column column;
+        private final Map<Object, Integer> groups = new HashMap<>();
+
+        ObjectKeys(Column column) {
+            this.column = column;
+        }
+
+        @Override
+        int groupOf(int row) {
+            Object key = column.get(row);
+            Integer group = groups.get(key);
+            if (group == null) {
+                group = groups.size();
+                groups.put(key, group);
+            }
+            return group;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.dvs.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Recognizes and parses decimal numbers without throwing exceptions.
+ * Accepts an optional sign, digits with an optional fraction and an optional
+ * exponent, surrounded by optional spaces or tabs. Decimals with up to 15
+ * significant digits and a small exponent are converted exactly with a single
+ * multiplication or division; longer ones fall back to Double.parseDouble.
+ *
+ * Instances keep the value of the last scan and are not thread safe.
+ */
+public final class NumberScanner {
+
+    /** Scan result: the input is empty or whitespace only */
+    public static final int BLANK = 0;
+    /** Scan result: the input is an integer that fits in a long, see {@link #getLongValue()} */
+    public static final int INTEGER = 1;
+    /** Scan result: the input is a decimal number, see {@link #getDoubleValue()} */
+    public static final int DECIMAL = 2;
+    /** Scan result: the input is not a number */
+    public static final int TEXT = 3;
+
+    private static final int SLOW_PATH = -1;
+
+    // Digits that always fit in a long / in the 53 bit mantissa of a double
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private long longValue;
+    private double doubleValue;
+
+    // Scan state shared by the CharSequence and ByteBuffer variants
+    private boolean negative;
+    private long mantissa;
+    private int digits;
+    private int significantDigits;
+    private int fractionDigits;
+    private boolean decimal;
+
+    // Input of the scan in progress, one of the two is set
+    private CharSequence text;
+    private ByteBuffer buffer;
+
+    /**
+     * Convert a text value to Integer, Long or Double when it is a number.
+     * Blank values become null, the missing value, and anything else is
+     * returned trimmed.
+     */
+    public static Object parseValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        return new NumberScanner().toValue(value);
+    }
+
+    /**
+     * Instance variant of {@link #parseValue(String)} that reuses this scanner
+     */
+    public Object toValue(String value) {
+        switch (scan(value)) {
+            case BLANK:
+                return null;
+            case INTEGER:
+                if (longValue == (int) longValue) {
+                    return Integer.valueOf((int) longValue);
+                }
+                return Long.valueOf(longValue);
+            case DECIMAL:
+                return Double.valueOf(doubleValue);
+            default:
+                return value.trim();
+        }
+    }
+
+    /**
+     * Scan a text value.
+     * Returns {@link #BLANK}, {@link #INTEGER}, {@link #DECIMAL} or {@link #TEXT}.
+     */
+    public int scan(CharSequence text) {
+        this.text = text;
+        try {
+            return scan(0, text.length());
+        } finally {
+            this.text = null;
+        }
+    }
+
+    /**
+     * Scan the bytes [start, end) of an ASCII compatible buffer.
+     * Returns {@link #BLANK}, {@link #INTEGER}, {@link #DECIMAL} or {@link #TEXT}.
+     */
+    public int scan(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        try {
+            return scan(start, end);
+        } finally {
+            this.buffer = null;
+        }
+    }
+
+    /**
+     * Scan the characters [start, end) of the current input
+     */
+    private int scan(int start, int end) {
+        while (start < end && isWhitespace(charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return BLANK;
+        }
+
+        reset();
+        int i = start;
+        char c = charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        for (; i < end; i++) {
+            c = charAt(i);
+            if (c >= '0' && c <= '9') {
+                addDigit(c - '0');
+            } else if (c == '.' && !decimal) {
+                decimal = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return TEXT;
+        }
+
+        int exponent = 0;
+        if (i < end && (charAt(i) == 'e' || charAt(i) == 'E')) {
+            decimal = true;
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (charAt(i) == '-' || charAt(i) == '+')) {
+                negativeExponent = charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            for (; i < end && charAt(i) >= '0' && charAt(i) <= '9'; i++) {
+                exponent = addExponentDigit(exponent, charAt(i) - '0');
+            }
+            if (i == exponentStart) {
+                return TEXT;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != end) {
+            return TEXT;
+        }
+        int result = finish(exponent);
+        if (result == SLOW_PATH) {
+            doubleValue = Double.parseDouble(substring(start, end));
+            return DECIMAL;
+        }
+        return result;
+    }
+
+    /**
+     * Value of the last input scanned as {@link #INTEGER}
+     */
+    public long getLongValue() {
+        return longValue;
+    }
+
+    /**
+     * Value of the last input scanned as {@link #DECIMAL}
+     */
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    private void reset() {
+        negative = false;
+        mantissa = 0;
+        digits = 0;
+        significantDigits = 0;
+        fractionDigits = 0;
+        decimal = false;
+    }
+
+    private void addDigit(int digit) {
+        digits++;
+        if (significantDigits > 0 || digit != 0) {
+            significantDigits++;
+        }
+        if (significantDigits <= MAX_LONG_DIGITS) {
+            mantissa = mantissa * 10 + digit;
+            if (decimal) {
+                fractionDigits++;
+            }
+        } else if (!decimal) {
+            // Digits beyond long precision only scale the value
+            fractionDigits--;
+        }
+    }
+
+    private static int addExponentDigit(int exponent, int digit) {
+        return exponent < 100_000 ? exponent * 10 + digit : exponent;
+    }
+
+    /**
+     * Turn the scanned digits into a value, or return SLOW_PATH when the
+     * decimal cannot be converted exactly from the mantissa
+     */
+    private int finish(int exponent) {
+        if (!decimal && significantDigits <= MAX_LONG_DIGITS) {
+            longValue = negative ? -mantissa : mantissa;
+            return INTEGER;
+        }
+        int scale = exponent - fractionDigits;
+        if (significantDigits <= MAX_EXACT_DIGITS && Math.abs(scale) < POWERS_OF_TEN.length) {
+            // Both operands are exact doubles, so a single operation rounds correctly
+            double value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+            doubleValue = negative ? -value : value;
+            return DECIMAL;
+        }
+        return SLOW_PATH;
+    }
+
+    private char charAt(int index) {
+        return text != null ? text.charAt(index) : (char) (buffer.get(index) & 0xFF);
+    }
+
+    private String substring(int start, int end) {
+        if (text != null) {
+            return text.subSequence(start, end).toString();
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,47 @@
+package com.dvs.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps distinct strings of a column to dense int codes
+ */
+final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /**
+     * Return the code for a value, adding it to the dictionary if needed
+     */
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Return the code of a value, or -1 if the value is not in the dictionary
+     */
+    int lookup(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    String decode(int code) {
+        return values[code];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,294 @@
+package com.dvs.service;
+
+import com.dvs.model.DataSet;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
+import org.jfree.chart.JFreeChart;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless rendering of many charts from a job file.
+ *
+ * A job file is a CSV file with one chart per line:
+ * {@code input, chart type, output[, width, height]}, e.g.
+ * {@code sales.csv,Bar Chart,out/sales-bar.png,1200,800}. Relative paths are
+ * resolved against the directory of the job file, the output format follows
+ * the output extension, and blank lines, lines starting with # and a header
+ * line starting with "input" are skipped.
+ *
+ * Every distinct input is loaded once and shared by all its charts. Loads
+ * and charts run on a fixed pool of threads, a chart starting as soon as its
+ * dataset is loaded; a failed load or chart is reported and does not stop
+ * the others. Inputs are taken in the order they first appear, and no more
+ * of them than there are threads are held in memory at a time: the next
+ * input is only loaded once all charts of an earlier one are written.
+ */
+public class BatchRenderer {
+
+    public static final int DEFAULT_WIDTH = 800;
+    public static final int DEFAULT_HEIGHT = 600;
+
+    /** One chart to render */
+    public static final class Job {
+        private final File input;
+        private final String chartType;
+        private final File output;
+        private final int width;
+        private final int height;
+
+        public Job(File input, String chartType, File output, int width, int height) {
+            this.input = input;
+            this.chartType = chartType;
+            this.output = output;
+            this.width = width;
+            this.height = height;
+        }
+
+        public File getInput() {
+            return input;
+        }
+
+        public String getChartType() {
+            return chartType;
+        }
+
+        public File getOutput() {
+            return output;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    /** Outcome of a batch: failures and timings */
+    public static final class Report {
+        private final int charts;
+        private final List<String> failures;
+        private final long[] chartNanos;
+        private final long loadNanos;
+        private final long wallNanos;
+
+        Report(int charts, List<String> failures, long[] chartNanos, long loadNanos, long wallNanos) {
+            this.charts = charts;
+            this.failures = failures;
+            this.chartNanos = chartNanos;
+            this.loadNanos = loadNanos;
+            this.wallNanos = wallNanos;
+        }
+
+        /**
+         * Number of charts written
+         */
+        public int getChartCount() {
+            return chartNanos.length;
+        }
+
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Charts written per second of wall time
+         */
+        public double getThroughput() {
+            return wallNanos > 0 ? chartNanos.length * 1e9 / wallNanos : 0;
+        }
+
+        /**
+         * Build and export time of the charts written at the given percentile, in milliseconds
+         */
+        public double getLatencyMillis(double percentile) {
+            if (chartNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * chartNanos.length) - 1;
+            return chartNanos[Math.max(0, Math.min(chartNanos.length - 1, index))] / 1e6;
+        }
+
+        public void print(PrintStream out) {
+            out.printf(Locale.ROOT, "Rendered %d of %d charts in %.1f s (%.1f charts/s), loading took %.1f s of thread time%n",
+                chartNanos.length, charts, wallNanos / 1e9, getThroughput(), loadNanos / 1e9);
+            out.printf(Locale.ROOT, "Chart latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                getLatencyMillis(50), getLatencyMillis(90), getLatencyMillis(99), getLatencyMillis(100));
+            for (String failure : failures) {
+                out.println("FAILED " + failure);
+            }
+        }
+    }
+
+    private final DataService dataService;
+    private final ChartService chartService;
+    private final int threads;
+
+    public BatchRenderer(int threads) {
+        this(new DataService(), new ChartService(), threads);
+    }
+
+    public BatchRenderer(DataService dataService, ChartService chartService, int threads) {
+        this.dataService = dataService;
+        this.chartService = chartService;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Read the jobs of a job file
+     */
+    public static List<Job> readJobs(File jobFile) throws IOException {
+        File base = jobFile.getAbsoluteFile().getParentFile();
+        List<String[]> lines;
+        try (CSVReader reader = new CSVReader(new FileReader(jobFile))) {
+            lines = reader.readAll();
+        } catch (CsvException e) {
+            throw new IOException("Invalid job file " + jobFile + ": " + e.getMessage(), e);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String[] fields = lines.get(i);
+            String first = fields[0].trim();
+            if (first.isEmpty() && fields.length == 1 || first.startsWith("#")
+                    || i == 0 && first.equalsIgnoreCase("input")) {
+                continue;
+            }
+            if (fields.length != 3 && fields.length != 5) {
+                throw new IOException("Line " + (i + 1) + " of " + jobFile
+                    + ": expected input, chart type, output[, width, height]: " + Arrays.toString(fields));
+            }
+            int width = DEFAULT_WIDTH;
+            int height = DEFAULT_HEIGHT;
+            if (fields.length == 5) {
+                try {
+                    width = Integer.parseInt(fields[3].trim());
+                    height = Integer.parseInt(fields[4].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + (i + 1) + " of " + jobFile + ": invalid size", e);
+                }
+            }
+            jobs.add(new Job(resolve(base, first), fields[1].trim(), resolve(base, fields[2].trim()), width, height));
+        }
+        return jobs;
+    }
+
+    private static File resolve(File base, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(base, path);
+    }
+
+    /**
+     * Render all jobs and wait for them to finish
+     */
+    public Report run(List<Job> jobs) {
+        long start = System.nanoTime();
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-render-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        long[] chartNanos = new long[jobs.size()];
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicLong loadNanos = new AtomicLong();
+
+        Map<File, List<Job>> jobsByInput = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            jobsByInput.computeIfAbsent(job.getInput().getAbsoluteFile(), file -> new ArrayList<>()).add(job);
+        }
+        // Taken before an input is loaded and given back after its last chart,
+        // here rather than on the pool whose threads would wait on each other
+        Semaphore resident = new Semaphore(threads);
+        try {
+            List<CompletableFuture<Void>> inputs = new ArrayList<>(jobsByInput.size());
+            for (Map.Entry<File, List<Job>> entry : jobsByInput.entrySet()) {
+                resident.acquireUninterruptibly();
+                File input = entry.getKey();
+                CompletableFuture<DataSet> load = CompletableFuture.supplyAsync(() -> load(input, loadNanos), pool);
+                List<CompletableFuture<Void>> charts = new ArrayList<>(entry.getValue().size());
+                for (Job job : entry.getValue()) {
+                    charts.add(load.thenAcceptAsync(dataSet -> {
+                        long chartStart = System.nanoTime();
+                        render(dataSet, job);
+                        chartNanos[rendered.getAndIncrement()] = System.nanoTime() - chartStart;
+                    }, pool).exceptionally(failure -> {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                        failures.add(job.getOutput() + ": " + cause.getMessage());
+                        return null;
+                    }));
+                }
+                CompletableFuture<Void> written = CompletableFuture.allOf(charts.toArray(new CompletableFuture<?>[0]));
+                inputs.add(written.whenComplete((done, failure) -> {
+                    // Let the dataset and its cached charts go after its last chart
+                    if (!load.isCompletedExceptionally()) {
+                        chartService.evictCache(load.join());
+                    }
+                    resident.release();
+                }));
+            }
+            CompletableFuture.allOf(inputs.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        long[] latencies = Arrays.copyOf(chartNanos, rendered.get());
+        Arrays.sort(latencies);
+        return new Report(jobs.size(), new ArrayList<>(failures), latencies, loadNanos.get(), System.nanoTime() - start);
+    }
+
+    private DataSet load(File file, AtomicLong loadNanos) {
+        long start = System.nanoTime();
+        try {
+            return dataService.loadFile(file, null);
+        } catch (IOException | CsvException e) {
+            throw new CompletionException(new IOException("Cannot load " + file + ": " + e.getMessage(), e));
+        } finally {
+            loadNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void render(DataSet dataSet, Job job) {
+        ChartExporter.Format format = ChartExporter.Format.forFile(job.getOutput());
+        if (format == null) {
+            throw new IllegalArgumentException("Unknown image format of " + job.getOutput().getName());
+        }
+        File directory = job.getOutput().getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new CompletionException(new IOException("Cannot create " + directory));
+        }
+
+        ChartOptions options = ChartOptions.DEFAULT.withMaxPoints(Math.max(ChartOptions.MIN_POINTS, job.getWidth()));
+        JFreeChart chart = chartService.buildChart(dataSet, job.getChartType(), options);
+        // Jobs asking for the same chart share the cached instance, which is not thread safe
+        synchronized (chart) {
+            try {
+                chartService.exportChart(chart, job.getOutput().getPath(), job.getWidth(), job.getHeight(),
+                    format.getExtension());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+}
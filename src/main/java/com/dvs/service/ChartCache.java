@@ -0,0 +1,139 @@
+package com.dvs.service;
+
+import com.dvs.model.DataSet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of results computed from a DataSet, such as
+ * built charts and aggregated datasets.
+ * Entries are keyed by the dataset identity and version, so any change to
+ * the dataset makes its entries unreachable; they are dropped as soon as a
+ * result for the new version is stored. The total estimated size of the
+ * entries is bounded, the least recently used ones being evicted first.
+ * Thread safe.
+ */
+final class ChartCache {
+
+    /** Fixed size counted for every entry, about a chart object graph */
+    static final long ENTRY_OVERHEAD = 64 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    ChartCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cached result for the current version of the dataset, or null
+     */
+    synchronized Object get(DataSet dataSet, String spec, ChartOptions options) {
+        Entry entry = entries.get(new Key(dataSet, spec, options));
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Cache a result computed from the given version of the dataset, unless
+     * the dataset changed meanwhile or the result alone exceeds the budget
+     */
+    synchronized void put(DataSet dataSet, long version, String spec, ChartOptions options, Object value,
+            long estimatedBytes) {
+        if (version != dataSet.getVersion()) {
+            return;
+        }
+        long size = estimatedBytes + ENTRY_OVERHEAD;
+        if (size > maxBytes) {
+            return;
+        }
+
+        // Results of older versions are unreachable
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().dataSet == dataSet && entry.getKey().version != version) {
+                bytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+        Entry previous = entries.put(new Key(dataSet, spec, options), new Entry(value, size));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += size;
+
+        for (Iterator<Entry> eldest = entries.values().iterator(); bytes > maxBytes && eldest.hasNext();) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drop the entries of a dataset, e.g. when it is no longer displayed
+     */
+    synchronized void remove(DataSet dataSet) {
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().dataSet == dataSet) {
+                bytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    private static final class Key {
+        private final DataSet dataSet;
+        private final long version;
+        private final String spec;
+        private final ChartOptions options;
+
+        Key(DataSet dataSet, String spec, ChartOptions options) {
+            this.dataSet = dataSet;
+            this.version = dataSet.getVersion();
+            this.spec = spec;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return dataSet == key.dataSet && version == key.version && spec.equals(key.spec)
+                && (options == null ? key.options == null : options.equals(key.options));
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(dataSet) * 31 + Long.hashCode(version);
+            hash = hash * 31 + spec.hashCode();
+            return hash * 31 + (options != null ? options.hashCode() : 0);
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.dvs.service;
+
+import org.jfree.chart.JFreeChart;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless chart export to PNG, JPEG and SVG files.
+ * Charts are drawn straight into an image, no Swing component is involved,
+ * so any resolution can be exported and no display is needed.
+ *
+ * Each thread keeps its image buffer for the next export of at most
+ * {@link #MAX_RETAINED_PIXELS}, and encoding goes through memory streams
+ * rather than the ImageIO disk cache. Exports submitted with
+ * {@link #submit} run on a pool of daemon workers, one per processor; a
+ * chart must not be modified while it is being exported.
+ */
+public class ChartExporter implements AutoCloseable {
+
+    /** Supported file formats */
+    public enum Format {
+        PNG("png"),
+        JPEG("jpg"),
+        /** SVG document embedding the chart as a PNG image */
+        SVG("svg");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Format from a name or file extension such as "png", "jpg" or "SVG"
+         */
+        public static Format fromName(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.equals("jpeg") || lower.equals("jpg")) {
+                return JPEG;
+            }
+            for (Format format : values()) {
+                if (format.extension.equals(lower)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + name);
+        }
+
+        /**
+         * Format of a file from its extension, or null if it has none we support
+         */
+        public static Format forFile(File file) {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            try {
+                return fromName(name.substring(dot + 1));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /** Largest buffer kept per thread between exports, 2560 x 1600 */
+    public static final int MAX_RETAINED_PIXELS = 2560 * 1600;
+
+    private static final float JPEG_QUALITY = 0.9f;
+
+    private static final ThreadLocal<BufferedImage> BUFFER = new ThreadLocal<>();
+
+    private final int workers;
+    private ExecutorService pool;
+
+    public ChartExporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ChartExporter(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Export a chart on the calling thread
+     */
+    public void export(JFreeChart chart, File file, int width, int height, Format format) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(chart, out, width, height, format);
+        }
+    }
+
+    /**
+     * Export a chart on the worker pool. The future gives the file once written.
+     */
+    public Future<File> submit(JFreeChart chart, File file, int width, int height, Format format) {
+        return pool().submit(() -> {
+            export(chart, file, width, height, format);
+            return file;
+        });
+    }
+
+    /**
+     * Render and encode a chart to a stream, which is left open
+     */
+    public void write(JFreeChart chart, OutputStream out, int width, int height, Format format) throws IOException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid export size: " + width + "x" + height);
+        }
+        BufferedImage image = render(chart, width, height);
+        switch (format) {
+            case JPEG:
+                encode(image, "jpeg", out, JPEG_QUALITY);
+                break;
+            case SVG:
+                writeSvg(image, out);
+                break;
+            default:
+                encode(image, "png", out, -1);
+                break;
+        }
+    }
+
+    /**
+     * Draw the chart into the buffer of the calling thread
+     */
+    private static BufferedImage render(JFreeChart chart, int width, int height) {
+        BufferedImage buffer = BUFFER.get();
+        BufferedImage image;
+        if (buffer != null && buffer.getWidth() >= width && buffer.getHeight() >= height) {
+            image = buffer.getWidth() == width && buffer.getHeight() == height
+                ? buffer : buffer.getSubimage(0, 0, width, height);
+        } else {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            if ((long) width * height <= MAX_RETAINED_PIXELS) {
+                BUFFER.set(image);
+            }
+        }
+
+        Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setColor(Color.WHITE);
+            g2.fillRect(0, 0, width, height);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            chart.draw(g2, new Rectangle2D.Double(0, 0, width, height));
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Encode with ImageIO through a memory cached stream, quality in [0, 1] or -1 for the default
+     */
+    private static void encode(BufferedImage image, String formatName, OutputStream out, float quality)
+            throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + formatName);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (quality >= 0 && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void writeSvg(BufferedImage image, OutputStream out) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        encode(image, "png", png, -1);
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+            + " width=\"" + width + "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+        writer.write("<image width=\"" + width + "\" height=\"" + height + "\" xlink:href=\"data:image/png;base64,");
+        writer.write(Base64.getEncoder().encodeToString(png.toByteArray()));
+        writer.write("\"/>\n</svg>\n");
+        writer.flush();
+    }
+
+    private synchronized ExecutorService pool() {
+        if (pool == null) {
+            AtomicInteger count = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "chart-export-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Stop the worker pool once the submitted exports are done
+     */
+    @Override
+    public synchronized void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+}
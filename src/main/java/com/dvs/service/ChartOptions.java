@@ -0,0 +1,161 @@
+package com.dvs.service;
+
+import com.dvs.model.AggregateFunction;
+
+/**
+ * Per chart rendering options.
+ * Controls the level-of-detail stage that reduces long series before they
+ * are handed to JFreeChart, how category charts aggregate the rows of
+ * each category and how many categories they show, and from which size
+ * scatter plots are drawn as a density image; the DataSet itself always
+ * keeps every row.
+ */
+public final class ChartOptions {
+
+    /** How series longer than the point budget are reduced */
+    public enum Downsampling {
+        /** Plot every row */
+        NONE,
+        /** Largest-Triangle-Three-Buckets, keeps the visual shape of the series */
+        LTTB,
+        /** Minimum and maximum of each bucket, keeps every peak */
+        MIN_MAX
+    }
+
+    /** Smallest point budget accepted, LTTB needs the two end points and one bucket */
+    public static final int MIN_POINTS = 3;
+
+    public static final int DEFAULT_MAX_POINTS = 2000;
+
+    /** Categories shown by bar and pie charts before the rest is folded into "Other" */
+    public static final int DEFAULT_MAX_CATEGORIES = 20;
+
+    /** Scatter plots of more rows are drawn as a density image, see {@link DensityGrid} */
+    public static final int DEFAULT_DENSITY_THRESHOLD = 100_000;
+
+    /**
+     * LTTB down to {@link #DEFAULT_MAX_POINTS} points, categories summed and
+     * limited to {@link #DEFAULT_MAX_CATEGORIES}
+     */
+    public static final ChartOptions DEFAULT = new ChartOptions(Downsampling.LTTB, DEFAULT_MAX_POINTS);
+
+    /** Every row and every category, e.g. for exports */
+    public static final ChartOptions FULL_RESOLUTION = new ChartOptions(Downsampling.NONE, Integer.MAX_VALUE,
+        AggregateFunction.SUM, Integer.MAX_VALUE, DEFAULT_DENSITY_THRESHOLD);
+
+    private final Downsampling downsampling;
+    private final int maxPoints;
+    private final AggregateFunction aggregation;
+    private final int maxCategories;
+    private final int densityThreshold;
+
+    public ChartOptions(Downsampling downsampling, int maxPoints) {
+        this(downsampling, maxPoints, AggregateFunction.SUM);
+    }
+
+    public ChartOptions(Downsampling downsampling, int maxPoints, AggregateFunction aggregation) {
+        this(downsampling, maxPoints, aggregation, DEFAULT_MAX_CATEGORIES);
+    }
+
+    public ChartOptions(Downsampling downsampling, int maxPoints, AggregateFunction aggregation, int maxCategories) {
+        this(downsampling, maxPoints, aggregation, maxCategories, DEFAULT_DENSITY_THRESHOLD);
+    }
+
+    public ChartOptions(Downsampling downsampling, int maxPoints, AggregateFunction aggregation, int maxCategories,
+            int densityThreshold) {
+        if (downsampling == null || aggregation == null) {
+            throw new IllegalArgumentException("Downsampling mode and aggregation must not be null");
+        }
+        if (maxPoints < MIN_POINTS) {
+            throw new IllegalArgumentException("At least " + MIN_POINTS + " points are required: " + maxPoints);
+        }
+        if (maxCategories < 1) {
+            throw new IllegalArgumentException("At least one category is required: " + maxCategories);
+        }
+        this.downsampling = downsampling;
+        this.maxPoints = maxPoints;
+        this.aggregation = aggregation;
+        this.maxCategories = maxCategories;
+        this.densityThreshold = densityThreshold;
+    }
+
+    public Downsampling getDownsampling() {
+        return downsampling;
+    }
+
+    /**
+     * Maximum number of points plotted per series, typically about the plot width in pixels
+     */
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    /**
+     * Aggregate applied to the rows of each category in bar and pie charts
+     */
+    public AggregateFunction getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * Maximum number of categories of bar and pie charts; those with the
+     * largest aggregates are kept and the others folded into an "Other" one
+     */
+    public int getMaxCategories() {
+        return maxCategories;
+    }
+
+    /**
+     * Number of rows above which scatter plots bin their points into a
+     * density image instead of drawing one shape per point
+     */
+    public int getDensityThreshold() {
+        return densityThreshold;
+    }
+
+    public ChartOptions withDownsampling(Downsampling newDownsampling) {
+        return new ChartOptions(newDownsampling, maxPoints, aggregation, maxCategories, densityThreshold);
+    }
+
+    public ChartOptions withMaxPoints(int newMaxPoints) {
+        return new ChartOptions(downsampling, newMaxPoints, aggregation, maxCategories, densityThreshold);
+    }
+
+    public ChartOptions withAggregation(AggregateFunction newAggregation) {
+        return new ChartOptions(downsampling, maxPoints, newAggregation, maxCategories, densityThreshold);
+    }
+
+    public ChartOptions withMaxCategories(int newMaxCategories) {
+        return new ChartOptions(downsampling, maxPoints, aggregation, newMaxCategories, densityThreshold);
+    }
+
+    public ChartOptions withDensityThreshold(int newDensityThreshold) {
+        return new ChartOptions(downsampling, maxPoints, aggregation, maxCategories, newDensityThreshold);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ChartOptions)) {
+            return false;
+        }
+        ChartOptions options = (ChartOptions) other;
+        return downsampling == options.downsampling && maxPoints == options.maxPoints
+            && aggregation == options.aggregation && maxCategories == options.maxCategories
+            && densityThreshold == options.densityThreshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return (((31 * downsampling.hashCode() + maxPoints) * 31 + aggregation.hashCode()) * 31 + maxCategories) * 31
+            + densityThreshold;
+    }
+
+    @Override
+    public String toString() {
+        return "ChartOptions[" + downsampling + ", maxPoints=" + maxPoints + ", " + aggregation
+            + ", maxCategories=" + maxCategories + ", densityThreshold=" + densityThreshold + "]";
+    }
+}
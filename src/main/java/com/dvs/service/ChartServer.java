@@ -0,0 +1,725 @@
+package com.dvs.service;
+
+import com.dvs.model.AggregateFunction;
+import com.dvs.model.ColumnStats;
+import com.dvs.model.DataSet;
+import com.dvs.model.DataSetSnapshot;
+import com.dvs.model.GroupBy;
+import com.dvs.model.NumberScanner;
+import com.opencsv.exceptions.CsvException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jfree.chart.JFreeChart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP server for the web front-end in docs/.
+ *
+ * Datasets are loaded once with {@link DataService}, from the files of a
+ * data directory or from CSV uploaded by the browser, and stay on the
+ * server. The browser only receives what it draws: aggregated categories
+ * and downsampled XY series as JSON, or charts rendered by
+ * {@link ChartService}. Requests are handled on a fixed pool of daemon
+ * workers. The endpoints are:
+ * <ul>
+ * <li>{@code GET /api/datasets}: names of the datasets available</li>
+ * <li>{@code POST /api/datasets?name=sales.csv}: load the CSV request body</li>
+ * <li>{@code GET /api/datasets/{name}}: row count, columns with their statistics, suggested chart
+ * types and the first rows</li>
+ * <li>{@code GET /api/datasets/{name}/aggregate?key=0&value=1&function=sum&limit=20}:
+ * labels and values of the largest groups, the rest folded into "Other";
+ * {@code &where=2&equals=North} keeps the rows whose column 2 is North</li>
+ * <li>{@code GET /api/datasets/{name}/series?x=0&y=1&points=800[&from=..&to=..]}:
+ * x and y arrays of at most about the given number of points, from the rows
+ * with x in [from, to] when x is ascending</li>
+ * <li>{@code GET /api/datasets/{name}/chart?type=Bar+Chart&width=800&height=600[&format=png]}:
+ * the chart as PNG, JPEG or SVG</li>
+ * </ul>
+ * Other GET requests are served from the web directory, if any. Errors are
+ * answered with a status code and a JSON object holding the message.
+ * Requests a browser sends on behalf of a page of another origin are refused
+ * unless that origin was allowed with {@link #setAllowedOrigin}, and so are
+ * requests whose Host is not the loopback address and port listened to,
+ * which a page could send after pointing its own host name at 127.0.0.1.
+ * Uploads larger than {@link #setMaxUploadSize} are refused.
+ */
+public class ChartServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    /** Rows of a dataset sent with its description */
+    public static final int PREVIEW_ROWS = 10;
+
+    /** Largest width or height of a rendered chart */
+    public static final int MAX_IMAGE_SIZE = 4096;
+
+    /** Default largest CSV upload, in bytes */
+    public static final long DEFAULT_MAX_UPLOAD_SIZE = 256L << 20;
+
+    private static final String API = "/api/datasets";
+
+    private static final String[] LOOPBACK_HOSTS = {"localhost", "127.0.0.1", "[::1]"};
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+        CONTENT_TYPES.put("csv", "text/csv; charset=utf-8");
+        CONTENT_TYPES.put("json", "application/json");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+    }
+
+    private final DataService dataService;
+    private final ChartService chartService;
+    private final File dataDirectory;
+    private final File webDirectory;
+    private final ChartExporter exporter = new ChartExporter(1);
+    private final ChartCache responses = new ChartCache(Runtime.getRuntime().maxMemory() / 32);
+    private final Map<String, CompletableFuture<DataSet>> datasets = new ConcurrentHashMap<>();
+    private volatile String allowedOrigin;
+    private volatile long maxUploadSize = DEFAULT_MAX_UPLOAD_SIZE;
+    private HttpServer server;
+    private ExecutorService pool;
+
+    /**
+     * Server of the datasets in a directory (may be null to only serve
+     * uploads) and of the web front-end in another (may be null)
+     */
+    public ChartServer(File dataDirectory, File webDirectory) {
+        this(new DataService(), new ChartService(), dataDirectory, webDirectory);
+    }
+
+    public ChartServer(DataService dataService, ChartService chartService, File dataDirectory, File webDirectory) {
+        this.dataService = dataService;
+        this.chartService = chartService;
+        this.dataDirectory = dataDirectory;
+        this.webDirectory = webDirectory;
+    }
+
+    /**
+     * Let the web front-end served from another origin, such as
+     * {@code https://user.github.io}, call the API. Only same-origin
+     * requests are answered by default.
+     */
+    public void setAllowedOrigin(String origin) {
+        this.allowedOrigin = origin;
+    }
+
+    /**
+     * Largest CSV body accepted by an upload, larger ones are answered
+     * with status 413
+     */
+    public void setMaxUploadSize(long bytes) {
+        this.maxUploadSize = bytes;
+    }
+
+    /**
+     * Start listening, port 0 picking a free port
+     */
+    public synchronized void start(InetSocketAddress address, int threads) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        AtomicInteger workers = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "chart-server-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(address, 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    /**
+     * Port listened to, once started
+     */
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop listening, letting the requests in progress finish for up to a second
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(1);
+            pool.shutdown();
+            server = null;
+            pool = null;
+        }
+        exporter.close();
+    }
+
+    /**
+     * Whether the request is addressed to the loopback interface and the
+     * port listened to. An origin check alone does not hold once a foreign
+     * host name resolves to 127.0.0.1, since the page origin and the Host
+     * header then match each other.
+     */
+    private static boolean isLoopbackHost(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null) {
+            return false;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        int port = exchange.getLocalAddress().getPort();
+        for (String name : LOOPBACK_HOSTS) {
+            if (host.equals(name + ":" + port) || port == 80 && host.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a browser request may be answered: same-origin requests, and
+     * those of the origin set with {@link #setAllowedOrigin}. Other pages
+     * open in the browser must not read the datasets or upload any.
+     */
+    private boolean isAllowedOrigin(HttpExchange exchange, String origin) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        return origin.equals(allowedOrigin) || host != null && origin.equals("http://" + host);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLoopbackHost(exchange)) {
+                sendError(exchange, 403, "Host not allowed: " + exchange.getRequestHeaders().getFirst("Host"));
+                return;
+            }
+            String origin = exchange.getRequestHeaders().getFirst("Origin");
+            if (origin != null && !isAllowedOrigin(exchange, origin)) {
+                sendError(exchange, 403, "Origin not allowed: " + origin);
+                return;
+            }
+            if (origin != null && origin.equals(allowedOrigin)) {
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("Access-Control-Allow-Origin", origin);
+                headers.set("Vary", "Origin");
+                if (exchange.getRequestMethod().equals("OPTIONS")) {
+                    // Preflight of an upload
+                    headers.set("Access-Control-Allow-Methods", "GET, POST");
+                    headers.set("Access-Control-Allow-Headers", "Content-Type");
+                    exchange.sendResponseHeaders(204, -1);
+                    return;
+                }
+            }
+            String path = exchange.getRequestURI().getRawPath();
+            if (path.equals(API) || path.startsWith(API + "/")) {
+                handleApi(exchange, path.substring(API.length()));
+            } else if (exchange.getRequestMethod().equals("GET")) {
+                serveFile(exchange, decode(path));
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } catch (UploadTooLargeException e) {
+            sendError(exchange, 413, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (FileNotFoundException e) {
+            sendError(exchange, 404, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            sendError(exchange, 500, e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleApi(HttpExchange exchange, String path) throws IOException {
+        String method = exchange.getRequestMethod();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String[] parts = path.isEmpty() ? new String[0] : path.substring(1).split("/");
+
+        if (parts.length == 0 && method.equals("POST")) {
+            String name = query.get("name");
+            if (name == null || name.trim().isEmpty()) {
+                throw new IllegalArgumentException("Missing dataset name");
+            }
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (length != null && Long.parseLong(length.trim()) > maxUploadSize) {
+                throw new UploadTooLargeException(maxUploadSize);
+            }
+            DataSet dataSet = upload(name.trim(), exchange.getRequestBody());
+            sendJson(exchange, describe(name.trim(), dataSet));
+            return;
+        }
+        if (!method.equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        if (parts.length == 0) {
+            sendJson(exchange, list());
+            return;
+        }
+        String name = decode(parts[0]);
+        DataSet dataSet = dataSet(name);
+        String resource = parts.length > 1 ? parts[1] : "";
+        if (parts.length > 2) {
+            resource = null;
+        }
+        if ("".equals(resource)) {
+            sendJson(exchange, describe(name, dataSet));
+        } else if ("aggregate".equals(resource)) {
+            sendJson(exchange, aggregate(dataSet, query));
+        } else if ("series".equals(resource)) {
+            sendJson(exchange, series(dataSet, query));
+        } else if ("chart".equals(resource)) {
+            sendChart(exchange, dataSet, query);
+        } else {
+            throw new FileNotFoundException("Not found: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    /**
+     * Names of the CSV files and snapshots of the data directory and of the uploads
+     */
+    private String list() {
+        TreeSet<String> names = new TreeSet<>(datasets.keySet());
+        File[] files = dataDirectory != null ? dataDirectory.listFiles() : null;
+        if (files != null) {
+            for (File file : files) {
+                String lower = file.getName().toLowerCase(Locale.ROOT);
+                if (file.isFile() && (lower.endsWith(".csv") || DataSetSnapshot.isSnapshotFile(file))) {
+                    names.add(file.getName());
+                }
+            }
+        }
+        StringBuilder json = new StringBuilder("{\"datasets\":[");
+        for (String name : names) {
+            if (json.charAt(json.length() - 1) != '[') {
+                json.append(',');
+            }
+            json.append("{\"name\":");
+            appendString(json, name);
+            CompletableFuture<DataSet> load = datasets.get(name);
+            json.append(",\"loaded\":").append(load != null && load.isDone() && !load.isCompletedExceptionally());
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private String describe(String name, DataSet dataSet) {
+        StringBuilder json = new StringBuilder("{\"name\":");
+        appendString(json, name);
+        json.append(",\"rows\":").append(dataSet.getRowCount());
+        json.append(",\"columns\":[");
+        for (int i = 0; i < dataSet.getColumnCount(); i++) {
+            json.append(i > 0 ? "," : "").append("{\"name\":");
+            appendString(json, dataSet.getColumnName(i));
+            json.append(",\"numeric\":").append(dataSet.isNumericColumn(i));
+            ColumnStats stats = dataSet.getColumnStats(i);
+            json.append(",\"nulls\":").append(stats.getNullCount());
+            if (stats.getNumericCount() > 0) {
+                json.append(",\"min\":");
+                appendNumber(json, stats.getMin());
+                json.append(",\"max\":");
+                appendNumber(json, stats.getMax());
+            }
+            json.append('}');
+        }
+        json.append("],\"charts\":[");
+        List<String> charts = dataService.getSuggestedChartTypes(dataSet);
+        for (int i = 0; i < charts.size(); i++) {
+            json.append(i > 0 ? "," : "");
+            appendString(json, charts.get(i));
+        }
+        json.append("],\"preview\":[");
+        int rows = Math.min(PREVIEW_ROWS, dataSet.getRowCount());
+        for (int row = 0; row < rows; row++) {
+            json.append(row > 0 ? ",[" : "[");
+            for (int column = 0; column < dataSet.getColumnCount(); column++) {
+                json.append(column > 0 ? "," : "");
+                appendValue(json, dataSet, row, column);
+            }
+            json.append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Labels and values of the value column aggregated per key
+     */
+    private String aggregate(DataSet dataSet, Map<String, String> query) {
+        int key = columnParameter(dataSet, query, "key", 0);
+        int value = columnParameter(dataSet, query, "value", 1);
+        AggregateFunction function = functionParameter(query.get("function"));
+        int limit = intParameter(query, "limit", ChartOptions.DEFAULT_MAX_CATEGORIES, 1, Integer.MAX_VALUE);
+        int where = query.containsKey("where") ? columnParameter(dataSet, query, "where", -1) : -1;
+        Object equals = where >= 0 ? NumberScanner.parseValue(query.get("equals")) : null;
+
+        String spec = "aggregate " + key + " " + value + " " + function + " " + limit
+            + (where >= 0 ? " where " + where + "=" + equals : "");
+        long version = dataSet.getVersion();
+        String json = (String) responses.get(dataSet, spec, null);
+        if (json == null) {
+            DataSet rows = where >= 0 ? dataSet.selectRows(dataSet.findRows(where, equals)) : dataSet;
+            DataSet aggregated = new GroupBy().aggregate(rows, key, value, function, limit);
+            StringBuilder builder = new StringBuilder("{\"label\":");
+            appendString(builder, aggregated.getColumnName(1));
+            builder.append(",\"labels\":[");
+            for (int row = 0; row < aggregated.getRowCount(); row++) {
+                builder.append(row > 0 ? "," : "");
+                Object label = aggregated.getValue(row, 0);
+                appendString(builder, label != null ? label.toString() : "");
+            }
+            builder.append("],\"values\":[");
+            for (int row = 0; row < aggregated.getRowCount(); row++) {
+                builder.append(row > 0 ? "," : "");
+                appendNumber(builder, aggregated.getDouble(row, 1));
+            }
+            json = builder.append("]}").toString();
+            responses.put(dataSet, version, spec, null, json, 2L * json.length());
+        }
+        return json;
+    }
+
+    /**
+     * XY series reduced to the point budget, see {@link Downsampler}
+     */
+    private String series(DataSet dataSet, Map<String, String> query) {
+        int x = columnParameter(dataSet, query, "x", 0);
+        int y = columnParameter(dataSet, query, "y", 1);
+        int points = intParameter(query, "points", ChartOptions.DEFAULT_MAX_POINTS, ChartOptions.MIN_POINTS,
+            Integer.MAX_VALUE);
+        double lower = doubleParameter(query, "from", Double.NEGATIVE_INFINITY);
+        double upper = doubleParameter(query, "to", Double.POSITIVE_INFINITY);
+
+        String spec = "series " + x + " " + y + " " + points + " " + lower + " " + upper;
+        long version = dataSet.getVersion();
+        String json = (String) responses.get(dataSet, spec, null);
+        if (json == null) {
+            int rowCount = dataSet.getRowCount();
+            int from = 0;
+            int to = rowCount;
+            // Same slice as a zoomed line chart: the rows in range and their neighbours
+            if ((lower > Double.NEGATIVE_INFINITY || upper < Double.POSITIVE_INFINITY)
+                    && Downsampler.isAscending(dataSet, x, 0, rowCount)) {
+                from = Math.max(0, Downsampler.lowerBound(dataSet, x, 0, rowCount, lower) - 1);
+                to = Math.min(rowCount, Downsampler.upperBound(dataSet, x, 0, rowCount, upper) + 1);
+            }
+            int[] rows = Downsampler.selectRows(dataSet, x, y, from, to,
+                ChartOptions.DEFAULT.withMaxPoints(points));
+
+            StringBuilder builder = new StringBuilder("{\"xLabel\":");
+            appendString(builder, dataSet.getColumnName(x));
+            builder.append(",\"yLabel\":");
+            appendString(builder, dataSet.getColumnName(y));
+            builder.append(",\"rows\":").append(to - from).append(",\"x\":[");
+            for (int i = 0; i < rows.length; i++) {
+                builder.append(i > 0 ? "," : "");
+                appendNumber(builder, dataSet.getDouble(rows[i], x));
+            }
+            builder.append("],\"y\":[");
+            for (int i = 0; i < rows.length; i++) {
+                builder.append(i > 0 ? "," : "");
+                appendNumber(builder, dataSet.getDouble(rows[i], y));
+            }
+            json = builder.append("]}").toString();
+            responses.put(dataSet, version, spec, null, json, 2L * json.length());
+        }
+        return json;
+    }
+
+    private void sendChart(HttpExchange exchange, DataSet dataSet, Map<String, String> query) throws IOException {
+        String type = query.get("type");
+        if (type == null) {
+            throw new IllegalArgumentException("Missing chart type");
+        }
+        int width = intParameter(query, "width", BatchRenderer.DEFAULT_WIDTH, 1, MAX_IMAGE_SIZE);
+        int height = intParameter(query, "height", BatchRenderer.DEFAULT_HEIGHT, 1, MAX_IMAGE_SIZE);
+        ChartExporter.Format format = ChartExporter.Format.fromName(
+            query.containsKey("format") ? query.get("format") : "png");
+        if (!dataService.validateDataSet(dataSet, type)) {
+            throw new IllegalArgumentException("The dataset cannot be shown as a " + type);
+        }
+
+        ChartOptions options = ChartOptions.DEFAULT.withMaxPoints(Math.max(ChartOptions.MIN_POINTS, width));
+        JFreeChart chart = chartService.buildChart(dataSet, type, options);
+        ByteArrayOutputStream image = new ByteArrayOutputStream(64 * 1024);
+        // Requests for the same chart share the cached instance, which is not thread safe
+        synchronized (chart) {
+            exporter.write(chart, image, width, height, format);
+        }
+        String extension = format.getExtension();
+        send(exchange, 200, CONTENT_TYPES.get(extension), image.toByteArray());
+    }
+
+    /**
+     * Dataset of the given name, loaded from the data directory on first use
+     */
+    private DataSet dataSet(String name) throws IOException {
+        CompletableFuture<DataSet> load = datasets.get(name);
+        if (load == null) {
+            File file = dataFile(name);
+            CompletableFuture<DataSet> loading = new CompletableFuture<>();
+            load = datasets.putIfAbsent(name, loading);
+            if (load == null) {
+                load = loading;
+                try {
+                    loading.complete(dataService.loadFile(file, null));
+                } catch (IOException | CsvException | RuntimeException e) {
+                    // Let a later request try again
+                    datasets.remove(name, loading);
+                    loading.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + name, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException("Cannot load " + name + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private File dataFile(String name) throws FileNotFoundException {
+        File file = dataDirectory != null ? new File(dataDirectory, name) : null;
+        // Only plain names of files directly in the data directory
+        if (file == null || name.contains("/") || name.contains("\\") || name.startsWith(".") || !file.isFile()) {
+            throw new FileNotFoundException("No dataset named " + name);
+        }
+        return file;
+    }
+
+    /**
+     * Load an uploaded CSV file, replacing any dataset of the same name
+     */
+    private DataSet upload(String name, InputStream body) throws IOException {
+        File file = File.createTempFile("dvs-upload-", ".csv");
+        try {
+            // Counted as well, chunked requests have no Content-Length
+            long limit = maxUploadSize;
+            long size = 0;
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                byte[] buffer = new byte[64 * 1024];
+                for (int n; (n = body.read(buffer)) > 0;) {
+                    size += n;
+                    if (size > limit) {
+                        throw new UploadTooLargeException(limit);
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+            DataSet dataSet = dataService.loadCSVFile(file, null);
+            dataSet.setName(name.replaceFirst("(?i)\\.csv$", ""));
+            CompletableFuture<DataSet> previous = datasets.put(name, CompletableFuture.completedFuture(dataSet));
+            if (previous != null && previous.isDone() && !previous.isCompletedExceptionally()) {
+                DataSet replaced = previous.join();
+                chartService.evictCache(replaced);
+                responses.remove(replaced);
+            }
+            return dataSet;
+        } catch (CsvException e) {
+            throw new IllegalArgumentException("Invalid CSV: " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * Upload body larger than the limit set
+     */
+    private static class UploadTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        UploadTooLargeException(long limit) {
+            super("Upload larger than " + limit + " bytes");
+        }
+    }
+
+    private void serveFile(HttpExchange exchange, String path) throws IOException {
+        if (webDirectory == null) {
+            throw new FileNotFoundException("Not found: " + path);
+        }
+        File root = webDirectory.getCanonicalFile();
+        File file = new File(root, path.endsWith("/") ? path + "index.html" : path).getCanonicalFile();
+        if (!file.toPath().startsWith(root.toPath()) || !file.isFile()) {
+            throw new FileNotFoundException("Not found: " + path);
+        }
+        String name = file.getName();
+        String contentType = CONTENT_TYPES.get(name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT));
+        send(exchange, 200, contentType != null ? contentType : "application/octet-stream",
+            Files.readAllBytes(file.toPath()));
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        send(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        send(exchange, status, "application/json", json.append('}').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        headers.set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+                } else if (!pair.isEmpty()) {
+                    query.put(decode(pair), "");
+                }
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String text) {
+        try {
+            return URLDecoder.decode(text, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int columnParameter(DataSet dataSet, Map<String, String> query, String name, int defaultValue) {
+        return intParameter(query, name, defaultValue, 0, dataSet.getColumnCount() - 1);
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue, int min, int max) {
+        String text = query.get(name);
+        if (text == null) {
+            if (defaultValue < min || defaultValue > max) {
+                throw new IllegalArgumentException("Missing parameter " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Parameter " + name + " must be in [" + min + ", " + max + "]");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid parameter " + name + ": " + text, e);
+        }
+    }
+
+    private static double doubleParameter(Map<String, String> query, String name, double defaultValue) {
+        String text = query.get(name);
+        if (text == null || text.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid parameter " + name + ": " + text, e);
+        }
+    }
+
+    private static AggregateFunction functionParameter(String text) {
+        if (text == null) {
+            return AggregateFunction.SUM;
+        }
+        try {
+            return AggregateFunction.valueOf(text.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown aggregate function: " + text, e);
+        }
+    }
+
+    private static void appendValue(StringBuilder json, DataSet dataSet, int row, int column) {
+        if (dataSet.isNull(row, column)) {
+            json.append("null");
+        } else if (dataSet.isNumber(row, column)) {
+            appendNumber(json, dataSet.getDouble(row, column));
+        } else {
+            appendString(json, String.valueOf(dataSet.getValue(row, column)));
+        }
+    }
+
+    /**
+     * JSON number, null for NaN and infinities; whole numbers without a fraction
+     */
+    private static void appendNumber(StringBuilder json, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            json.append((long) value);
+        } else {
+            json.append(value);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+}
@@ -1,85 +1,168 @@
 package com.dvs.service;
 
 import com.dvs.model.DataSet;
+import com.dvs.model.GroupBy;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
+import org.jfree.chart.annotations.XYDataImageAnnotation;
+import org.jfree.chart.axis.LogAxis;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.NumberTickUnit;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PiePlot;
+import org.jfree.chart.plot.Plot;
 import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.AbstractXYItemRenderer;
+import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.title.PaintScaleLegend;
+import org.jfree.chart.ui.Layer;
+import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.chart.util.TableOrder;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.CategoryToPieDataset;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
-import org.jfree.data.xy.XYSeries;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xy.XYDataset;
 import org.jfree.data.xy.XYSeriesCollection;
 
 import javax.swing.JPanel;
 import java.awt.Color;
 import java.awt.Font;
-import java.util.List;
+import java.awt.Image;
+import java.io.File;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
 
 /**
- * Service class for creating various types of charts using JFreeChart
+ * Service class for creating various types of charts using JFreeChart.
+ * Built charts and the aggregated datasets behind category charts are kept
+ * in a memory bounded LRU cache keyed by dataset, dataset version, chart
+ * type and options, so showing a chart again is immediate while any change
+ * to the dataset invalidates it.
  */
 public class ChartService {
     
+    /** Number of rows processed between two cancellation checks */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+    
+    /** Largest density grid width, in cells */
+    private static final int MAX_DENSITY_COLUMNS = 1200;
+    
+    /** Estimated size of a cell of a dataset or chart series, boxed values included */
+    private static final int BYTES_PER_VALUE = 16;
+    
+    private final ChartCache cache;
+    private final ChartExporter exporter = new ChartExporter();
+    
+    /**
+     * Chart service caching up to a sixteenth of the maximum heap
+     */
+    public ChartService() {
+        this(Runtime.getRuntime().maxMemory() / 16);
+    }
+    
+    /**
+     * Chart service caching results up to the given estimated size, 0 to disable caching
+     */
+    public ChartService(long cacheBytes) {
+        this.cache = new ChartCache(cacheBytes);
+    }
+    
     /**
      * Create a chart based on the dataset and chart type
      */
     public JPanel createChart(DataSet dataSet, String chartType) {
-        JFreeChart chart = null;
+        return createChartPanel(buildChart(dataSet, chartType));
+    }
+    
+    /**
+     * Build the chart for a dataset and chart type with the default options
+     */
+    public JFreeChart buildChart(DataSet dataSet, String chartType) {
+        return buildChart(dataSet, chartType, ChartOptions.DEFAULT);
+    }
+    
+    /**
+     * Build the chart for a dataset and chart type without creating any Swing
+     * component, so it can run on a background thread. When the calling thread
+     * is interrupted the build stops with a CancellationException.
+     * The chart is cached: asking again for the same chart of an unchanged
+     * dataset returns the same instance.
+     */
+    public JFreeChart buildChart(DataSet dataSet, String chartType, ChartOptions options) {
+        String spec = chartType.toLowerCase();
+        long version = dataSet.getVersion();
+        JFreeChart chart = (JFreeChart) cache.get(dataSet, spec, options);
+        if (chart != null) {
+            return chart;
+        }
         
-        switch (chartType.toLowerCase()) {
+        switch (spec) {
             case "bar chart":
-                chart = createBarChart(dataSet);
+                chart = createBarChart(dataSet, options);
+                break;
+            case "grouped bar chart":
+                chart = createGroupedBarChart(dataSet, options);
                 break;
             case "pie chart":
-                chart = createPieChart(dataSet);
+                chart = createPieChart(dataSet, options);
                 break;
             case "line chart":
-                chart = createLineChart(dataSet);
+                chart = createLineChart(dataSet, options);
                 break;
             case "scatter plot":
-                chart = createScatterPlot(dataSet);
+                chart = createScatterPlot(dataSet, options);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported chart type: " + chartType);
         }
         
-        if (chart != null) {
-            customizeChart(chart);
-            ChartPanel chartPanel = new ChartPanel(chart);
-            chartPanel.setPreferredSize(new java.awt.Dimension(600, 400));
-            return chartPanel;
-        }
-        
-        return null;
+        customizeChart(chart);
+        cache.put(dataSet, version, spec, options, chart, estimateBytes(chart, dataSet));
+        return chart;
     }
     
     /**
-     * Create a bar chart from the dataset
+     * Drop the cached charts of a dataset
      */
-    private JFreeChart createBarChart(DataSet dataSet) {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+    public void evictCache(DataSet dataSet) {
+        cache.remove(dataSet);
+    }
+    
+    public void clearCache() {
+        cache.clear();
+    }
+    
+    /**
+     * Wrap a chart in a panel for display. Must be called on the EDT.
+     */
+    public JPanel createChartPanel(JFreeChart chart) {
+        ChartPanel chartPanel = new ChartPanel(chart);
+        chartPanel.setPreferredSize(new java.awt.Dimension(600, 400));
+        return chartPanel;
+    }
+    
+    /**
+     * Create a bar chart from the dataset, one bar per category
+     */
+    private JFreeChart createBarChart(DataSet dataSet, ChartOptions options) {
+        CategoryDataset dataset = new DefaultCategoryDataset();
         
         // Assume first column is category, second column is value
         if (dataSet.getColumnCount() >= 2) {
-            List<Object> categories = dataSet.getColumnData(0);
-            List<Object> values = dataSet.getColumnData(1);
-            
-            String seriesName = dataSet.getColumnNames().get(1);
-            
-            for (int i = 0; i < Math.min(categories.size(), values.size()); i++) {
-                Object category = categories.get(i);
-                Object value = values.get(i);
-                
-                if (value instanceof Number) {
-                    dataset.addValue(((Number) value).doubleValue(), seriesName, category.toString());
-                }
-            }
+            dataset = new DataSetCategoryDataset(aggregate(dataSet, options), 0, 1);
         }
         
         return ChartFactory.createBarChart(
             dataSet.getName() + " - Bar Chart",
-            dataSet.getColumnNames().get(0),
-            dataSet.getColumnNames().get(1),
+            dataSet.getColumnName(0),
+            dataSet.getColumnName(1),
             dataset,
             PlotOrientation.VERTICAL,
             true,
@@ -89,24 +172,50 @@ public class ChartService {
     }
     
     /**
-     * Create a pie chart from the dataset
+     * Create a grouped bar chart from the dataset: column 0 gives the
+     * categories, the first other text column the series and column 1 the
+     * values, cross tabulated in one pass
+     */
+    private JFreeChart createGroupedBarChart(DataSet dataSet, ChartOptions options) {
+        int seriesColumn = findSeriesColumn(dataSet);
+        if (seriesColumn < 0) {
+            throw new IllegalArgumentException("A grouped bar chart needs a second text column for the series");
+        }
+        
+        String spec = "pivot " + seriesColumn + " " + options.getAggregation();
+        long version = dataSet.getVersion();
+        DataSet pivot = (DataSet) cache.get(dataSet, spec, null);
+        if (pivot == null) {
+            pivot = new GroupBy().pivot(dataSet, 0, seriesColumn, 1, options.getAggregation());
+            cache.put(dataSet, version, spec, null, pivot, estimateBytes(pivot));
+        }
+        int[] valueColumns = new int[pivot.getColumnCount() - 1];
+        for (int i = 0; i < valueColumns.length; i++) {
+            valueColumns[i] = i + 1;
+        }
+        
+        return ChartFactory.createBarChart(
+            dataSet.getName() + " - Grouped Bar Chart",
+            dataSet.getColumnName(0),
+            dataSet.getColumnName(1),
+            new DataSetCategoryDataset(pivot, 0, valueColumns),
+            PlotOrientation.VERTICAL,
+            true,
+            true,
+            false
+        );
+    }
+    
+    /**
+     * Create a pie chart from the dataset, one slice per category
      */
-    private JFreeChart createPieChart(DataSet dataSet) {
-        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+    private JFreeChart createPieChart(DataSet dataSet, ChartOptions options) {
+        PieDataset<?> dataset = new DefaultPieDataset<String>();
         
         // Assume first column is category, second column is value
         if (dataSet.getColumnCount() >= 2) {
-            List<Object> categories = dataSet.getColumnData(0);
-            List<Object> values = dataSet.getColumnData(1);
-            
-            for (int i = 0; i < Math.min(categories.size(), values.size()); i++) {
-                Object category = categories.get(i);
-                Object value = values.get(i);
-                
-                if (value instanceof Number) {
-                    dataset.setValue(category.toString(), ((Number) value).doubleValue());
-                }
-            }
+            dataset = new CategoryToPieDataset(new DataSetCategoryDataset(aggregate(dataSet, options), 0, 1),
+                TableOrder.BY_ROW, 0);
         }
         
         return ChartFactory.createPieChart(
@@ -119,50 +228,40 @@ public class ChartService {
     }
     
     /**
-     * Create a line chart from the dataset
+     * Create a line chart from the dataset. Long series are reduced to the
+     * point budget of the options, see {@link Downsampler}, and resampled
+     * from the visible rows when zooming, see {@link ViewportResampler}.
      */
-    private JFreeChart createLineChart(DataSet dataSet) {
-        XYSeriesCollection dataset = new XYSeriesCollection();
+    private JFreeChart createLineChart(DataSet dataSet, ChartOptions options) {
+        XYDataset dataset = new XYSeriesCollection();
+        int[] columns = findNumericColumns(dataSet);
+        ViewportResampler resampler = null;
         
-        if (dataSet.getColumnCount() >= 2) {
-            // Find numeric columns
-            int xColumn = -1, yColumn = -1;
-            
-            for (int i = 0; i < dataSet.getColumnCount(); i++) {
-                List<Object> columnData = dataSet.getColumnData(i);
-                if (!columnData.isEmpty() && columnData.get(0) instanceof Number) {
-                    if (xColumn == -1) {
-                        xColumn = i;
-                    } else if (yColumn == -1) {
-                        yColumn = i;
-                        break;
-                    }
-                }
+        if (columns != null) {
+            DataSet series = dataSet;
+            int xColumn = columns[0];
+            int yColumn = columns[1];
+            if (!Downsampler.isAscending(dataSet, xColumn, 0, dataSet.getRowCount())) {
+                // Lines join the points in x order, on a sorted copy of the two columns
+                series = Downsampler.sortByX(dataSet, xColumn, yColumn);
+                xColumn = 0;
+                yColumn = 1;
             }
-            
-            if (xColumn >= 0 && yColumn >= 0) {
-                XYSeries series = new XYSeries(dataSet.getColumnNames().get(yColumn));
-                
-                List<Object> xValues = dataSet.getColumnData(xColumn);
-                List<Object> yValues = dataSet.getColumnData(yColumn);
-                
-                for (int i = 0; i < Math.min(xValues.size(), yValues.size()); i++) {
-                    Object x = xValues.get(i);
-                    Object y = yValues.get(i);
-                    
-                    if (x instanceof Number && y instanceof Number) {
-                        series.add(((Number) x).doubleValue(), ((Number) y).doubleValue());
-                    }
-                }
-                
-                dataset.addSeries(series);
+            int rowCount = series.getRowCount();
+            int[] rows = Downsampler.selectRows(series, xColumn, yColumn, 0, rowCount, options);
+            DataSetXYDataset xyDataset = new DataSetXYDataset(series, series.getColumnName(yColumn),
+                xColumn, yColumn, rows);
+            // Zoomed views are resampled from the visible rows when the series was reduced
+            if (rows.length < rowCount) {
+                resampler = new ViewportResampler(xyDataset, rows, options);
             }
+            dataset = xyDataset;
         }
         
-        String xAxisLabel = dataSet.getColumnCount() > 0 ? dataSet.getColumnNames().get(0) : "X";
-        String yAxisLabel = dataSet.getColumnCount() > 1 ? dataSet.getColumnNames().get(1) : "Y";
+        String xAxisLabel = dataSet.getColumnCount() > 0 ? dataSet.getColumnName(0) : "X";
+        String yAxisLabel = dataSet.getColumnCount() > 1 ? dataSet.getColumnName(1) : "Y";
         
-        return ChartFactory.createXYLineChart(
+        JFreeChart chart = ChartFactory.createXYLineChart(
             dataSet.getName() + " - Line Chart",
             xAxisLabel,
             yAxisLabel,
@@ -172,51 +271,29 @@ public class ChartService {
             true,
             false
         );
+        if (resampler != null) {
+            chart.getXYPlot().getDomainAxis().addChangeListener(resampler);
+        }
+        return chart;
     }
     
     /**
-     * Create a scatter plot from the dataset
+     * Create a scatter plot from the dataset, drawn as a density image above
+     * the density threshold of the options
      */
-    private JFreeChart createScatterPlot(DataSet dataSet) {
-        XYSeriesCollection dataset = new XYSeriesCollection();
+    private JFreeChart createScatterPlot(DataSet dataSet, ChartOptions options) {
+        XYDataset dataset = new XYSeriesCollection();
+        int[] columns = findNumericColumns(dataSet);
         
-        if (dataSet.getColumnCount() >= 2) {
-            // Find numeric columns
-            int xColumn = -1, yColumn = -1;
-            
-            for (int i = 0; i < dataSet.getColumnCount(); i++) {
-                List<Object> columnData = dataSet.getColumnData(i);
-                if (!columnData.isEmpty() && columnData.get(0) instanceof Number) {
-                    if (xColumn == -1) {
-                        xColumn = i;
-                    } else if (yColumn == -1) {
-                        yColumn = i;
-                        break;
-                    }
-                }
-            }
-            
-            if (xColumn >= 0 && yColumn >= 0) {
-                XYSeries series = new XYSeries("Data Points");
-                
-                List<Object> xValues = dataSet.getColumnData(xColumn);
-                List<Object> yValues = dataSet.getColumnData(yColumn);
-                
-                for (int i = 0; i < Math.min(xValues.size(), yValues.size()); i++) {
-                    Object x = xValues.get(i);
-                    Object y = yValues.get(i);
-                    
-                    if (x instanceof Number && y instanceof Number) {
-                        series.add(((Number) x).doubleValue(), ((Number) y).doubleValue());
-                    }
-                }
-                
-                dataset.addSeries(series);
-            }
+        if (columns != null && dataSet.getRowCount() > options.getDensityThreshold()) {
+            return createDensityPlot(dataSet, columns, options);
+        }
+        if (columns != null) {
+            dataset = new DataSetXYDataset(dataSet, "Data Points", columns[0], columns[1]);
         }
         
-        String xAxisLabel = dataSet.getColumnCount() > 0 ? dataSet.getColumnNames().get(0) : "X";
-        String yAxisLabel = dataSet.getColumnCount() > 1 ? dataSet.getColumnNames().get(1) : "Y";
+        String xAxisLabel = dataSet.getColumnCount() > 0 ? dataSet.getColumnName(0) : "X";
+        String yAxisLabel = dataSet.getColumnCount() > 1 ? dataSet.getColumnName(1) : "Y";
         
         return ChartFactory.createScatterPlot(
             dataSet.getName() + " - Scatter Plot",
@@ -230,6 +307,154 @@ public class ChartService {
         );
     }
     
+    /**
+     * Create a scatter plot drawn as a density image: the points are binned
+     * into a grid of about the plot size and each cell is colored by its
+     * number of points, so painting no longer depends on the row count
+     */
+    private JFreeChart createDensityPlot(DataSet dataSet, int[] columns, ChartOptions options) {
+        // About the 3:2 aspect of the chart panel
+        int gridColumns = Math.min(options.getMaxPoints(), MAX_DENSITY_COLUMNS);
+        int gridRows = Math.max(1, gridColumns * 2 / 3);
+        DensityGrid grid = DensityGrid.bin(dataSet, columns[0], columns[1], gridColumns, gridRows);
+        DensityGrid.CountScale scale = new DensityGrid.CountScale(grid.getMaxCount());
+        
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(false, false);
+        renderer.addAnnotation(new XYDataImageAnnotation(grid.toImage(scale), grid.getMinX(), grid.getMinY(),
+            grid.getMaxX() - grid.getMinX(), grid.getMaxY() - grid.getMinY(), true), Layer.BACKGROUND);
+        NumberAxis xAxis = new NumberAxis(dataSet.getColumnName(columns[0]));
+        NumberAxis yAxis = new NumberAxis(dataSet.getColumnName(columns[1]));
+        xAxis.setAutoRangeIncludesZero(false);
+        yAxis.setAutoRangeIncludesZero(false);
+        // The empty dataset lets the axes range over the image
+        XYPlot plot = new XYPlot(new XYSeriesCollection(), xAxis, yAxis, renderer);
+        
+        JFreeChart chart = new JFreeChart(dataSet.getName() + " - Scatter Plot", JFreeChart.DEFAULT_TITLE_FONT,
+            plot, false);
+        LogAxis countAxis = new LogAxis("Points per cell");
+        countAxis.setRange(scale.getLowerBound(), scale.getUpperBound());
+        countAxis.setTickUnit(new NumberTickUnit(1), false, true);
+        countAxis.setNumberFormatOverride(NumberFormat.getIntegerInstance());
+        PaintScaleLegend legend = new PaintScaleLegend(scale, countAxis);
+        legend.setPosition(RectangleEdge.RIGHT);
+        legend.setMargin(4, 4, 4, 4);
+        chart.addSubtitle(legend);
+        ChartFactory.getChartTheme().apply(chart);
+        return chart;
+    }
+    
+    /**
+     * Aggregate the value column (1) per category (column 0), keeping the
+     * largest categories of the options and folding the rest into "Other"
+     * so the chart stays readable and quick to lay out at any cardinality.
+     * Bar and pie charts of the same data share the cached result.
+     */
+    private DataSet aggregate(DataSet dataSet, ChartOptions options) {
+        String spec = "aggregate " + options.getAggregation() + " " + options.getMaxCategories();
+        long version = dataSet.getVersion();
+        DataSet aggregated = (DataSet) cache.get(dataSet, spec, null);
+        if (aggregated == null) {
+            aggregated = new GroupBy().aggregate(dataSet, 0, 1, options.getAggregation(), options.getMaxCategories());
+            cache.put(dataSet, version, spec, null, aggregated, estimateBytes(aggregated));
+        }
+        return aggregated;
+    }
+    
+    private static long estimateBytes(DataSet dataSet) {
+        return (long) dataSet.getRowCount() * dataSet.getColumnCount() * BYTES_PER_VALUE;
+    }
+    
+    /**
+     * Estimated memory held by a chart of the given dataset beyond its fixed
+     * object graph: the items of its datasets, the copies of columns it
+     * plots instead of the dataset and the density images
+     */
+    private static long estimateBytes(JFreeChart chart, DataSet source) {
+        Plot plot = chart.getPlot();
+        long bytes = 0;
+        if (plot instanceof XYPlot) {
+            XYPlot xyPlot = (XYPlot) plot;
+            for (int i = 0; i < xyPlot.getDatasetCount(); i++) {
+                XYDataset dataset = xyPlot.getDataset(i);
+                for (int series = 0; dataset != null && series < dataset.getSeriesCount(); series++) {
+                    bytes += (long) dataset.getItemCount(series) * BYTES_PER_VALUE;
+                }
+                if (dataset instanceof DataSetXYDataset && ((DataSetXYDataset) dataset).getDataSet() != source) {
+                    // E.g. the sorted copy of an unsorted line chart, only referenced by the chart
+                    bytes += estimateBytes(((DataSetXYDataset) dataset).getDataSet());
+                }
+                XYItemRenderer renderer = xyPlot.getRenderer(i);
+                if (renderer instanceof AbstractXYItemRenderer) {
+                    for (Object annotation : ((AbstractXYItemRenderer) renderer).getAnnotations()) {
+                        if (annotation instanceof XYDataImageAnnotation) {
+                            Image image = ((XYDataImageAnnotation) annotation).getImage();
+                            bytes += 4L * image.getWidth(null) * image.getHeight(null);
+                        }
+                    }
+                }
+            }
+        } else if (plot instanceof CategoryPlot) {
+            CategoryDataset dataset = ((CategoryPlot) plot).getDataset();
+            if (dataset != null) {
+                bytes += (long) dataset.getRowCount() * dataset.getColumnCount() * BYTES_PER_VALUE;
+            }
+        } else if (plot instanceof PiePlot) {
+            PieDataset<?> dataset = ((PiePlot<?>) plot).getDataset();
+            if (dataset != null) {
+                bytes += (long) dataset.getItemCount() * BYTES_PER_VALUE;
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Find the first text column after the value column, or -1
+     */
+    static int findSeriesColumn(DataSet dataSet) {
+        for (int i = 2; i < dataSet.getColumnCount(); i++) {
+            if (!dataSet.isNumericColumn(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Find the first two columns holding numbers, or null if there are fewer than two
+     */
+    private int[] findNumericColumns(DataSet dataSet) {
+        int xColumn = -1, yColumn = -1;
+        
+        for (int i = 0; i < dataSet.getColumnCount(); i++) {
+            if (dataSet.isNumericColumn(i)) {
+                if (xColumn == -1) {
+                    xColumn = i;
+                } else {
+                    yColumn = i;
+                    break;
+                }
+            }
+        }
+        
+        return yColumn >= 0 ? new int[] {xColumn, yColumn} : null;
+    }
+    
+    /**
+     * Stop a chart build whose thread was interrupted, checking every
+     * CANCEL_CHECK_INTERVAL rows. Called from the O(rows) build steps.
+     */
+    static void checkCancelled(int row) {
+        if (row % CANCEL_CHECK_INTERVAL == 0) {
+            checkCancelled();
+        }
+    }
+    
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Chart generation cancelled");
+        }
+    }
+    
     /**
      * Apply custom styling to the chart
      */
@@ -249,10 +474,17 @@ public class ChartService {
     }
     
     /**
-     * Export chart to file (implementation to be added)
+     * Export a chart to an image file without any Swing component. The
+     * format is png, jpg (or jpeg) or svg.
+     */
+    public void exportChart(JFreeChart chart, String filePath, int width, int height, String format) throws IOException {
+        exporter.export(chart, new File(filePath), width, height, ChartExporter.Format.fromName(format));
+    }
+    
+    /**
+     * Export a chart on the export worker pool, for bulk exports
      */
-    public void exportChart(JFreeChart chart, String filePath, int width, int height, String format) {
-        // Implementation for chart export will be added later
-        throw new UnsupportedOperationException("Chart export not implemented yet");
+    public Future<File> exportChartAsync(JFreeChart chart, File file, int width, int height, ChartExporter.Format format) {
+        return exporter.submit(chart, file, width, height, format);
     }
 }
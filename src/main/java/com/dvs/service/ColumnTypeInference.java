@@ -0,0 +1,67 @@
+package com.dvs.service;
+
+import com.dvs.model.ColumnType;
+import com.dvs.model.NumberScanner;
+
+/**
+ * Infers the type of each CSV column from a sample of its first rows.
+ * Loaders then convert the remaining cells in the inferred type: text
+ * columns skip number scanning altogether and numeric columns store cells
+ * that are not numbers as missing values instead of turning mixed.
+ */
+final class ColumnTypeInference {
+
+    /** Number of leading rows sampled before the column types are fixed */
+    static final int SAMPLE_ROWS = 1000;
+
+    private final int[] integers;
+    private final int[] decimals;
+    private final int[] texts;
+
+    ColumnTypeInference(int columnCount) {
+        integers = new int[columnCount];
+        decimals = new int[columnCount];
+        texts = new int[columnCount];
+    }
+
+    /**
+     * Record the {@link NumberScanner} result of a sampled cell
+     */
+    void add(int column, int scanResult) {
+        if (column >= texts.length) {
+            return;
+        }
+        switch (scanResult) {
+            case NumberScanner.INTEGER:
+                integers[column]++;
+                break;
+            case NumberScanner.DECIMAL:
+                decimals[column]++;
+                break;
+            case NumberScanner.TEXT:
+                texts[column]++;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Inferred types: STRING when most sampled values are text, LONG or
+     * DOUBLE when most are numbers and EMPTY when nothing but blanks was seen
+     */
+    ColumnType[] getTypes() {
+        ColumnType[] types = new ColumnType[texts.length];
+        for (int i = 0; i < types.length; i++) {
+            int numbers = integers[i] + decimals[i];
+            if (numbers == 0 && texts[i] == 0) {
+                types[i] = ColumnType.EMPTY;
+            } else if (texts[i] >= numbers) {
+                types[i] = ColumnType.STRING;
+            } else {
+                types[i] = decimals[i] > 0 ? ColumnType.DOUBLE : ColumnType.LONG;
+            }
+        }
+        return types;
+    }
+}
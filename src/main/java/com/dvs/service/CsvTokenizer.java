@@ -0,0 +1,213 @@
+package com.dvs.service;
+
+import com.dvs.model.NumberScanner;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte level RFC 4180 tokenizer over a region of a (typically memory mapped) buffer.
+ * Each call to {@link #nextRecord()} exposes the fields of one record as
+ * byte ranges. Numeric fields can be parsed in place with {@link #scanNumber(int)},
+ * so Strings are only built for the fields that actually hold text, and only
+ * once per distinct short value.
+ */
+final class CsvTokenizer {
+
+    private static final byte QUOTE = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte NEWLINE = '\n';
+    private static final byte RETURN = '\r';
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    private int fieldCount;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private boolean[] fieldEscaped = new boolean[16];
+
+    private byte[] scratch = new byte[64];
+    private final NumberScanner scanner = new NumberScanner();
+    private final StringPool strings = new StringPool();
+
+    CsvTokenizer(ByteBuffer buffer, int offset, int limit) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Position right after the last record read
+     */
+    int getPosition() {
+        return position;
+    }
+
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Advance to the next non-blank record.
+     * Returns false when the end of the region is reached.
+     */
+    boolean nextRecord() {
+        while (position < limit) {
+            int recordStart = position;
+            readRecord();
+            if (!isBlankRecord(recordStart)) {
+                return true;
+            }
+        }
+        fieldCount = 0;
+        return false;
+    }
+
+    /**
+     * Decode a field of the current record as a trimmed String. Repeated
+     * values return the same instance, see {@link StringPool}.
+     */
+    String getString(int field) {
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        int length = 0;
+        boolean escaped = fieldEscaped[field];
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            scratch[length++] = b;
+            // Collapse doubled quotes inside a quoted field
+            if (escaped && b == QUOTE) {
+                i++;
+            }
+        }
+        return strings.get(scratch, length);
+    }
+
+    /**
+     * Try to parse a field as a number without allocating.
+     * Returns one of the {@link NumberScanner} scan results; quoted fields
+     * containing escaped quotes are always text.
+     */
+    int scanNumber(int field) {
+        if (fieldEscaped[field]) {
+            return NumberScanner.TEXT;
+        }
+        return scanner.scan(buffer, fieldStart[field], fieldEnd[field]);
+    }
+
+    /**
+     * Value of the last field scanned as {@link NumberScanner#INTEGER}
+     */
+    long getLongValue() {
+        return scanner.getLongValue();
+    }
+
+    /**
+     * Value of the last field scanned as {@link NumberScanner#DECIMAL}
+     */
+    double getDoubleValue() {
+        return scanner.getDoubleValue();
+    }
+
+    private void readRecord() {
+        fieldCount = 0;
+        while (true) {
+            boolean endOfRecord = readField();
+            if (endOfRecord) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read one field and return true if it was the last field of the record
+     */
+    private boolean readField() {
+        if (position < limit && buffer.get(position) == QUOTE) {
+            return readQuotedField();
+        }
+        int start = position;
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b == SEPARATOR) {
+                addField(start, position, false);
+                position++;
+                return false;
+            }
+            if (b == NEWLINE) {
+                addField(start, trimReturn(start, position), false);
+                position++;
+                return true;
+            }
+            position++;
+        }
+        addField(start, trimReturn(start, position), false);
+        return true;
+    }
+
+    private boolean readQuotedField() {
+        int start = ++position;
+        boolean escaped = false;
+        int end = limit;
+        while (position < limit) {
+            if (buffer.get(position) == QUOTE) {
+                if (position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+                    escaped = true;
+                    position += 2;
+                    continue;
+                }
+                end = position++;
+                break;
+            }
+            position++;
+        }
+        addField(start, end, escaped);
+        // Skip anything between the closing quote and the next delimiter
+        while (position < limit) {
+            byte b = buffer.get(position++);
+            if (b == SEPARATOR) {
+                return false;
+            }
+            if (b == NEWLINE) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private int trimReturn(int start, int end) {
+        return end > start && buffer.get(end - 1) == RETURN ? end - 1 : end;
+    }
+
+    private boolean isBlankRecord(int recordStart) {
+        return fieldCount == 1 && fieldStart[0] == fieldEnd[0] && buffer.get(recordStart) != QUOTE;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStart.length) {
+            int newLength = fieldCount * 2;
+            fieldStart = Arrays.copyOf(fieldStart, newLength);
+            fieldEnd = Arrays.copyOf(fieldEnd, newLength);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, newLength);
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+}
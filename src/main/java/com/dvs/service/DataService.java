@@ -1,12 +1,20 @@
 package com.dvs.service;
 
+import com.dvs.model.ColumnType;
 import com.dvs.model.DataSet;
+import com.dvs.model.DataSetBuilder;
+import com.dvs.model.DataSetSnapshot;
+import com.dvs.model.NumberScanner;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
+import org.apache.commons.io.input.CountingInputStream;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,70 +24,179 @@ import java.util.List;
  */
 public class DataService {
     
+    /** Number of rows parsed between two progress reports */
+    private static final int PROGRESS_INTERVAL_ROWS = 10_000;
+    
+    /** Files at least this large are memory mapped and parsed in parallel */
+    private static final long PARALLEL_LOAD_THRESHOLD = 32L * 1024 * 1024;
+    
     /**
      * Load data from a CSV file
      */
     public DataSet loadCSVFile(File csvFile) throws IOException, CsvException {
-        DataSet dataSet = new DataSet(csvFile.getName());
+        return loadCSVFile(csvFile, null);
+    }
+    
+    /**
+     * Load data from a CSV file. Large files are memory mapped and split into
+     * chunks parsed on all cores, smaller ones are streamed row by row. The
+     * listener (may be null) is notified with the rows and bytes consumed as
+     * the load proceeds, and receives a preview of the first rows. The load
+     * stops with an InterruptedIOException when the calling thread is interrupted.
+     */
+    public DataSet loadCSVFile(File csvFile, LoadProgressListener listener) throws IOException, CsvException {
+        if (csvFile.length() >= PARALLEL_LOAD_THRESHOLD) {
+            return new ParallelCsvLoader().load(csvFile, listener);
+        }
+        return streamCSVFile(csvFile, listener);
+    }
+    
+    /**
+     * Load a dataset from a CSV file or from a .dvsb snapshot, depending on
+     * the file extension. Snapshots are mapped and read column by column on
+     * first use, so the listener is only notified for CSV files.
+     */
+    public DataSet loadFile(File file, LoadProgressListener listener) throws IOException, CsvException {
+        if (DataSetSnapshot.isSnapshotFile(file)) {
+            return DataSetSnapshot.read(file);
+        }
+        return loadCSVFile(file, listener);
+    }
+    
+    /**
+     * Save a dataset as a .dvsb snapshot that reloads without parsing
+     */
+    public void saveSnapshot(DataSet dataSet, File file) throws IOException {
+        DataSetSnapshot.write(dataSet, file);
+    }
+    
+    /**
+     * Load data from a CSV file, streaming it row by row so that only the
+     * parsed columns are kept in memory. Column types are inferred from the
+     * first rows and the rest of each column is converted in that type.
+     */
+    private DataSet streamCSVFile(File csvFile, LoadProgressListener listener) throws IOException, CsvException {
+        long totalBytes = csvFile.length();
+        long startTime = System.nanoTime();
+        NumberScanner scanner = new NumberScanner();
+        DataSetBuilder builder;
         
-        try (CSVReader reader = new CSVReader(new FileReader(csvFile))) {
-            List<String[]> allRows = reader.readAll();
-            
-            if (allRows.isEmpty()) {
+        try (CountingInputStream input = new CountingInputStream(new FileInputStream(csvFile));
+             CSVReader reader = new CSVReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            // First row as column headers
+            String[] headers = reader.readNext();
+            if (headers == null) {
                 throw new IOException("CSV file is empty");
             }
             
-            // First row as column headers
-            String[] headers = allRows.get(0);
+            // Decoded like the mapped path: UTF-8, without a byte order mark
+            if (headers.length > 0 && headers[0].startsWith("\uFEFF")) {
+                headers[0] = headers[0].substring(1);
+            }
+            List<String> columnNames = new ArrayList<>();
             for (String header : headers) {
-                dataSet.addColumn(header.trim());
+                columnNames.add(header.trim());
             }
+            builder = new DataSetBuilder(columnNames);
             
-            // Process data rows
-            for (int i = 1; i < allRows.size(); i++) {
-                String[] row = allRows.get(i);
-                List<Object> rowData = new ArrayList<>();
-                
-                for (int j = 0; j < headers.length; j++) {
-                    String cellValue = j < row.length ? row[j].trim() : "";
-                    
-                    // Try to convert to number if possible
-                    Object value = parseValue(cellValue);
-                    rowData.add(value);
+            // Sample the first rows to fix the column types
+            ColumnTypeInference inference = new ColumnTypeInference(headers.length);
+            List<String[]> sample = new ArrayList<>();
+            String[] row;
+            while (sample.size() < ColumnTypeInference.SAMPLE_ROWS && (row = reader.readNext()) != null) {
+                if (!isBlankRow(row)) {
+                    for (int j = 0; j < row.length; j++) {
+                        inference.add(j, scanner.scan(row[j]));
+                    }
+                    sample.add(row);
                 }
+            }
+            ColumnType[] types = inference.getTypes();
+            if (listener != null) {
+                DataSetBuilder preview = new DataSetBuilder(columnNames);
+                for (int i = 0; i < sample.size() && i < LoadProgressListener.PREVIEW_ROWS; i++) {
+                    appendRow(preview, sample.get(i), types, scanner);
+                }
+                listener.previewAvailable(preview.build(csvFile.getName()));
+            }
+            for (String[] sampledRow : sample) {
+                appendRow(builder, sampledRow, types, scanner);
+            }
+            sample = null;
+            
+            while ((row = reader.readNext()) != null) {
+                if (isBlankRow(row)) {
+                    continue;
+                }
+                appendRow(builder, row, types, scanner);
                 
-                dataSet.addRow(rowData);
+                if (builder.getRowCount() % PROGRESS_INTERVAL_ROWS == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("CSV load cancelled");
+                    }
+                    if (listener != null) {
+                        listener.progressUpdated(new LoadProgress(builder.getRowCount(), input.getByteCount(),
+                            totalBytes, System.nanoTime() - startTime));
+                    }
+                }
+            }
+            
+            if (listener != null) {
+                listener.progressUpdated(new LoadProgress(builder.getRowCount(), input.getByteCount(),
+                    totalBytes, System.nanoTime() - startTime));
             }
         }
         
-        return dataSet;
+        return builder.build(csvFile.getName());
+    }
+    
+    private static boolean isBlankRow(String[] row) {
+        return row.length == 1 && row[0].isEmpty();
     }
     
     /**
-     * Parse a string value and convert to appropriate type (Number or String)
+     * Convert one CSV record according to the inferred column types.
+     * Text columns keep every cell as a string; numeric columns store
+     * cells that are not numbers as missing values.
      */
-    private Object parseValue(String value) {
-        if (value == null || value.trim().isEmpty()) {
-            return "";
-        }
-        
-        value = value.trim();
-        
-        // Try to parse as integer
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            // Not an integer, try double
-        }
-        
-        // Try to parse as double
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            // Not a number, return as string
+    private static void appendRow(DataSetBuilder builder, String[] row, ColumnType[] types, NumberScanner scanner) {
+        for (int j = 0; j < types.length; j++) {
+            if (j >= row.length) {
+                builder.appendNull(j);
+                continue;
+            }
+            if (types[j] == ColumnType.STRING) {
+                builder.appendValue(j, row[j].trim());
+                continue;
+            }
+            switch (scanner.scan(row[j])) {
+                case NumberScanner.INTEGER:
+                    builder.appendLong(j, scanner.getLongValue());
+                    break;
+                case NumberScanner.DECIMAL:
+                    builder.appendDouble(j, scanner.getDoubleValue());
+                    break;
+                case NumberScanner.BLANK:
+                    builder.appendNull(j);
+                    break;
+                default:
+                    if (types[j].isNumeric()) {
+                        builder.appendNull(j);
+                    } else {
+                        builder.appendValue(j, row[j].trim());
+                    }
+                    break;
+            }
         }
-        
-        return value;
+        builder.endRow();
+    }
+    
+    /**
+     * Parse a string value and convert to appropriate type (Number or String,
+     * null when blank) without relying on exceptions
+     */
+    static Object parseValue(String value) {
+        return NumberScanner.parseValue(value);
     }
     
     /**
@@ -94,6 +211,8 @@ public class DataService {
             case "bar chart":
             case "pie chart":
                 return validateCategoricalData(dataSet);
+            case "grouped bar chart":
+                return validateCategoricalData(dataSet) && ChartService.findSeriesColumn(dataSet) >= 0;
             case "line chart":
             case "scatter plot":
                 return validateNumericalData(dataSet);
@@ -115,10 +234,8 @@ public class DataService {
         boolean hasNumericColumn = false;
         
         for (int col = 0; col < dataSet.getColumnCount(); col++) {
-            List<Object> columnData = dataSet.getColumnData(col);
-            if (!columnData.isEmpty()) {
-                Object firstValue = columnData.get(0);
-                if (firstValue instanceof Number) {
+            if (dataSet.getRowCount() > 0) {
+                if (dataSet.isNumericColumn(col)) {
                     hasNumericColumn = true;
                 } else {
                     hasTextColumn = true;
@@ -141,12 +258,8 @@ public class DataService {
         int numericColumns = 0;
         
         for (int col = 0; col < dataSet.getColumnCount(); col++) {
-            List<Object> columnData = dataSet.getColumnData(col);
-            if (!columnData.isEmpty()) {
-                Object firstValue = columnData.get(0);
-                if (firstValue instanceof Number) {
-                    numericColumns++;
-                }
+            if (dataSet.isNumericColumn(col)) {
+                numericColumns++;
             }
         }
         
@@ -162,6 +275,9 @@ public class DataService {
         if (validateCategoricalData(dataSet)) {
             suggestions.add("Bar Chart");
             suggestions.add("Pie Chart");
+            if (ChartService.findSeriesColumn(dataSet) >= 0) {
+                suggestions.add("Grouped Bar Chart");
+            }
         }
         
         if (validateNumericalData(dataSet)) {
@@ -0,0 +1,144 @@
+package com.dvs.service;
+
+import com.dvs.model.DataSet;
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only JFreeChart CategoryDataset over a DataSet.
+ * Each value column is a series and each distinct label of the category
+ * column is a category. Only the category keys and the row holding each
+ * category are kept; values are read from the column storage on demand.
+ * When a label occurs on several rows the last one wins, as with
+ * DefaultCategoryDataset.addValue; aggregate the data first to combine them.
+ */
+public class DataSetCategoryDataset extends AbstractDataset implements CategoryDataset {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final DataSet dataSet;
+    private final int[] valueColumns;
+    private final List<String> seriesKeys;
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryIndex = new HashMap<>();
+    private int[] categoryRows = new int[16];
+    
+    /**
+     * Index the category labels of a dataset. Rows without a numeric value
+     * in any of the value columns are ignored.
+     */
+    public DataSetCategoryDataset(DataSet dataSet, int categoryColumn, int... valueColumns) {
+        this.dataSet = dataSet;
+        this.valueColumns = valueColumns.clone();
+        List<String> names = dataSet.getColumnNames();
+        List<String> keys = new ArrayList<>(valueColumns.length);
+        for (int column : valueColumns) {
+            keys.add(names.get(column));
+        }
+        this.seriesKeys = Collections.unmodifiableList(keys);
+        
+        for (int row = 0; row < dataSet.getRowCount(); row++) {
+            ChartService.checkCancelled(row);
+            if (!hasValue(row)) {
+                continue;
+            }
+            String category = String.valueOf(dataSet.getValue(row, categoryColumn));
+            Integer index = categoryIndex.get(category);
+            if (index == null) {
+                index = categories.size();
+                categories.add(category);
+                categoryIndex.put(category, index);
+                if (index == categoryRows.length) {
+                    categoryRows = Arrays.copyOf(categoryRows, index * 2);
+                }
+            }
+            categoryRows[index] = row;
+        }
+    }
+    
+    private boolean hasValue(int row) {
+        for (int column : valueColumns) {
+            if (dataSet.isNumber(row, column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return valueColumns.length;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return categories.size();
+    }
+    
+    @Override
+    public Number getValue(int row, int column) {
+        int dataRow = categoryRows[column];
+        int valueColumn = valueColumns[row];
+        return dataSet.isNumber(dataRow, valueColumn) ? dataSet.getDouble(dataRow, valueColumn) : null;
+    }
+    
+    // KeyedValues2D of JFreeChart 1.5.3 declares raw Comparable keys and key lists
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Comparable getRowKey(int row) {
+        return seriesKeys.get(row);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    @Override
+    public int getRowIndex(Comparable key) {
+        return seriesKeys.indexOf(key);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List getRowKeys() {
+        return seriesKeys;
+    }
+    
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Comparable getColumnKey(int column) {
+        return categories.get(column);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    @Override
+    public int getColumnIndex(Comparable key) {
+        Integer index = categoryIndex.get(key);
+        return index != null ? index : -1;
+    }
+    
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List getColumnKeys() {
+        return Collections.unmodifiableList(categories);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Number getValue(Comparable rowKey, Comparable columnKey) {
+        int row = getRowIndex(rowKey);
+        if (row < 0) {
+            throw new UnknownKeyException("Unrecognised series key: " + rowKey);
+        }
+        int column = getColumnIndex(columnKey);
+        if (column < 0) {
+            throw new UnknownKeyException("Unrecognised category key: " + columnKey);
+        }
+        return getValue(row, column);
+    }
+}
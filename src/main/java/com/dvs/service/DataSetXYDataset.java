@@ -0,0 +1,166 @@
+package com.dvs.service;
+
+import com.dvs.model.ColumnStats;
+import com.dvs.model.DataSet;
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.general.DatasetUtils;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * Read-only JFreeChart XYDataset over two numeric columns of a DataSet.
+ * Values are read straight from the column storage when the chart asks
+ * for them, nothing is copied. An optional array of row indexes restricts
+ * the series to a subset of the rows, e.g. the output of {@link Downsampler};
+ * without it every row is an item and missing values are reported as NaN.
+ *
+ * The axis bounds of a series over all rows are the column statistics, so
+ * the chart does not scan every value to find them; a subset of rows is
+ * scanned as usual.
+ */
+public class DataSetXYDataset extends AbstractXYDataset implements DomainInfo, RangeInfo {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final DataSet dataSet;
+    private final String seriesKey;
+    private final int xColumn;
+    private final int yColumn;
+    private int[] rows;
+    
+    /**
+     * Series over all rows of the dataset
+     */
+    public DataSetXYDataset(DataSet dataSet, String seriesKey, int xColumn, int yColumn) {
+        this(dataSet, seriesKey, xColumn, yColumn, null);
+    }
+    
+    /**
+     * Series over the given rows of the dataset, or all rows if rows is null
+     */
+    public DataSetXYDataset(DataSet dataSet, String seriesKey, int xColumn, int yColumn, int[] rows) {
+        this.dataSet = dataSet;
+        this.seriesKey = seriesKey;
+        this.xColumn = xColumn;
+        this.yColumn = yColumn;
+        this.rows = rows;
+    }
+    
+    /**
+     * Replace the rows shown (null for all rows) and notify the chart
+     */
+    public void setRows(int[] rows) {
+        this.rows = rows;
+        fireDatasetChanged();
+    }
+    
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+    
+    public int getXColumn() {
+        return xColumn;
+    }
+    
+    public int getYColumn() {
+        return yColumn;
+    }
+    
+    @Override
+    public int getSeriesCount() {
+        return 1;
+    }
+    
+    // SeriesDataset of JFreeChart 1.5.3 declares a raw Comparable key
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return seriesKey;
+    }
+    
+    @Override
+    public DomainOrder getDomainOrder() {
+        return DomainOrder.NONE;
+    }
+    
+    @Override
+    public int getItemCount(int series) {
+        return rows != null ? rows.length : dataSet.getRowCount();
+    }
+    
+    @Override
+    public double getXValue(int series, int item) {
+        return dataSet.getDouble(rowOf(item), xColumn);
+    }
+    
+    @Override
+    public double getYValue(int series, int item) {
+        return dataSet.getDouble(rowOf(item), yColumn);
+    }
+    
+    @Override
+    public Number getX(int series, int item) {
+        double x = getXValue(series, item);
+        return Double.isNaN(x) ? null : x;
+    }
+    
+    @Override
+    public Number getY(int series, int item) {
+        double y = getYValue(series, item);
+        return Double.isNaN(y) ? null : y;
+    }
+    
+    @Override
+    public double getDomainLowerBound(boolean includeInterval) {
+        Range bounds = getDomainBounds(includeInterval);
+        return bounds != null ? bounds.getLowerBound() : Double.NaN;
+    }
+    
+    @Override
+    public double getDomainUpperBound(boolean includeInterval) {
+        Range bounds = getDomainBounds(includeInterval);
+        return bounds != null ? bounds.getUpperBound() : Double.NaN;
+    }
+    
+    @Override
+    public Range getDomainBounds(boolean includeInterval) {
+        if (rows != null) {
+            return DatasetUtils.iterateDomainBounds(this, includeInterval);
+        }
+        return boundsOf(xColumn);
+    }
+    
+    @Override
+    public double getRangeLowerBound(boolean includeInterval) {
+        Range bounds = getRangeBounds(includeInterval);
+        return bounds != null ? bounds.getLowerBound() : Double.NaN;
+    }
+    
+    @Override
+    public double getRangeUpperBound(boolean includeInterval) {
+        Range bounds = getRangeBounds(includeInterval);
+        return bounds != null ? bounds.getUpperBound() : Double.NaN;
+    }
+    
+    @Override
+    public Range getRangeBounds(boolean includeInterval) {
+        if (rows != null) {
+            return DatasetUtils.iterateRangeBounds(this, includeInterval);
+        }
+        return boundsOf(yColumn);
+    }
+    
+    /**
+     * Min and max of a column over all rows, null when it has no number
+     */
+    private Range boundsOf(int column) {
+        ColumnStats stats = dataSet.getColumnStats(column);
+        return stats.getNumericCount() > 0 ? new Range(stats.getMin(), stats.getMax()) : null;
+    }
+    
+    private int rowOf(int item) {
+        return rows != null ? rows[item] : item;
+    }
+}
@@ -0,0 +1,330 @@
+package com.dvs.service;
+
+import com.dvs.model.ColumnStats;
+import com.dvs.model.DataSet;
+import org.jfree.chart.renderer.PaintScale;
+
+import java.awt.Color;
+import java.awt.Paint;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Point counts of an XY series binned into a regular grid.
+ * Used to draw scatter plots of millions of points as a density image of
+ * about the plot size instead of one shape per point.
+ *
+ * The rows are cut into contiguous partitions binned in parallel, each into
+ * its own grid, and the grids are summed. Rows where x or y is not a number
+ * are skipped, runs of missing values a bitmap word at a time. The range
+ * comes from the column statistics when every row is a point, saving a
+ * pass over the data.
+ */
+public final class DensityGrid {
+
+    /** Datasets with fewer rows are binned on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    /** Number of rows binned between two cancellation checks */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+
+    private final int columns;
+    private final int rows;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final int[] counts;
+    private final int maxCount;
+
+    private DensityGrid(int columns, int rows, double[] bounds, int[] counts) {
+        this.columns = columns;
+        this.rows = rows;
+        this.minX = bounds[0];
+        this.maxX = bounds[1];
+        this.minY = bounds[2];
+        this.maxY = bounds[3];
+        this.counts = counts;
+        int max = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        this.maxCount = max;
+    }
+
+    /**
+     * Bin the rows into a grid of columns x rows cells spanning the range of
+     * the data. Interrupting the calling thread stops with a CancellationException.
+     */
+    public static DensityGrid bin(DataSet dataSet, int xColumn, int yColumn, int columns, int rows) {
+        return bin(dataSet, xColumn, yColumn, columns, rows, Runtime.getRuntime().availableProcessors());
+    }
+
+    static DensityGrid bin(DataSet dataSet, int xColumn, int yColumn, int columns, int rows, int parallelism) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("The grid needs at least one cell: " + columns + "x" + rows);
+        }
+        int rowCount = dataSet.getRowCount();
+        int partitions = rowCount < PARALLEL_THRESHOLD ? 1 : Math.max(1, parallelism);
+
+        ColumnStats xStats = dataSet.getColumnStats(xColumn);
+        ColumnStats yStats = dataSet.getColumnStats(yColumn);
+        double[] bounds;
+        if (xStats.getNumericCount() == rowCount && yStats.getNumericCount() == rowCount) {
+            // Every row is a point, the column statistics give the range without a pass
+            bounds = new double[] {xStats.getMin(), xStats.getMax(), yStats.getMin(), yStats.getMax()};
+        } else {
+            bounds = new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            List<double[]> partialBounds = runPartitions(rowCount, partitions,
+                (from, to, cancelled) -> bounds(dataSet, xColumn, yColumn, from, to, cancelled));
+            for (double[] partial : partialBounds) {
+                bounds[0] = Math.min(bounds[0], partial[0]);
+                bounds[1] = Math.max(bounds[1], partial[1]);
+                bounds[2] = Math.min(bounds[2], partial[2]);
+                bounds[3] = Math.max(bounds[3], partial[3]);
+            }
+        }
+        if (rowCount == 0 || bounds[0] > bounds[1]) {
+            // No numeric point, any range will do
+            bounds = new double[] {0, 1, 0, 1};
+        }
+        widen(bounds, 0);
+        widen(bounds, 2);
+
+        double[] finalBounds = bounds;
+        List<int[]> grids = runPartitions(rowCount, partitions,
+            (from, to, cancelled) -> count(dataSet, xColumn, yColumn, from, to, columns, rows, finalBounds, cancelled));
+        int[] counts = grids.get(0);
+        for (int i = 1; i < grids.size(); i++) {
+            int[] grid = grids.get(i);
+            for (int cell = 0; cell < counts.length; cell++) {
+                counts[cell] += grid[cell];
+            }
+        }
+        return new DensityGrid(columns, rows, bounds, counts);
+    }
+
+    /**
+     * Give an empty range (a single distinct value) a width so it can be binned and drawn
+     */
+    private static void widen(double[] bounds, int index) {
+        if (bounds[index] == bounds[index + 1]) {
+            double margin = bounds[index] == 0 ? 0.5 : Math.abs(bounds[index]) * 0.05;
+            bounds[index] -= margin;
+            bounds[index + 1] += margin;
+        }
+    }
+
+    /**
+     * Work on a range of rows, stopping when cancelled returns true
+     */
+    private interface PartitionTask<T> {
+        T run(int from, int to, BooleanSupplier cancelled);
+    }
+
+    private static <T> List<T> runPartitions(int rowCount, int partitions, PartitionTask<T> task) {
+        if (partitions == 1) {
+            return Collections.singletonList(task.run(0, rowCount, () -> Thread.currentThread().isInterrupted()));
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            int from = (int) ((long) rowCount * i / partitions);
+            int to = (int) ((long) rowCount * (i + 1) / partitions);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> task.run(from, to, cancelled::get)));
+        }
+        try {
+            List<T> results = new ArrayList<>(partitions);
+            for (ForkJoinTask<T> partition : tasks) {
+                results.add(partition.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Chart generation cancelled");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Binning failed", e.getCause());
+        } finally {
+            // Stops the partitions still running after a failure
+            cancelled.set(true);
+        }
+    }
+
+    private static double[] bounds(DataSet dataSet, int xColumn, int yColumn, int from, int to,
+            BooleanSupplier cancelled) {
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        int visited = 0;
+        for (int row = nextPoint(dataSet, xColumn, yColumn, from, to); row < to;
+                row = nextPoint(dataSet, xColumn, yColumn, row + 1, to)) {
+            checkCancelled(visited++, cancelled);
+            if (dataSet.isNumber(row, xColumn) && dataSet.isNumber(row, yColumn)) {
+                double x = dataSet.getDouble(row, xColumn);
+                double y = dataSet.getDouble(row, yColumn);
+                bounds[0] = Math.min(bounds[0], x);
+                bounds[1] = Math.max(bounds[1], x);
+                bounds[2] = Math.min(bounds[2], y);
+                bounds[3] = Math.max(bounds[3], y);
+            }
+        }
+        return bounds;
+    }
+
+    private static int[] count(DataSet dataSet, int xColumn, int yColumn, int from, int to,
+            int columns, int rows, double[] bounds, BooleanSupplier cancelled) {
+        int[] counts = new int[columns * rows];
+        double scaleX = columns / (bounds[1] - bounds[0]);
+        double scaleY = rows / (bounds[3] - bounds[2]);
+        int visited = 0;
+        for (int row = nextPoint(dataSet, xColumn, yColumn, from, to); row < to;
+                row = nextPoint(dataSet, xColumn, yColumn, row + 1, to)) {
+            checkCancelled(visited++, cancelled);
+            if (dataSet.isNumber(row, xColumn) && dataSet.isNumber(row, yColumn)) {
+                // The maximum falls on the upper edge of the last cell
+                int column = Math.min(columns - 1, (int) ((dataSet.getDouble(row, xColumn) - bounds[0]) * scaleX));
+                int gridRow = Math.min(rows - 1, (int) ((dataSet.getDouble(row, yColumn) - bounds[2]) * scaleY));
+                counts[gridRow * columns + column]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * First row in [row, to) where neither x nor y is missing, to if none
+     */
+    private static int nextPoint(DataSet dataSet, int xColumn, int yColumn, int row, int to) {
+        while (row < to) {
+            int x = dataSet.nextNonNull(row, xColumn);
+            int y = dataSet.nextNonNull(x, yColumn);
+            if (x == y) {
+                return Math.min(x, to);
+            }
+            row = y;
+        }
+        return to;
+    }
+
+    private static void checkCancelled(int offset, BooleanSupplier cancelled) {
+        if (offset % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+            throw new CancellationException("Chart generation cancelled");
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Number of points in a cell, grid row 0 holding the smallest y values
+     */
+    public int getCount(int column, int row) {
+        return counts[row * columns + column];
+    }
+
+    /**
+     * Largest number of points in a cell
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * Image of the grid, one pixel per cell with the largest y at the top.
+     * Empty cells are transparent, the others painted by the scale.
+     */
+    public BufferedImage toImage(PaintScale scale) {
+        BufferedImage image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = new int[columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int count = counts[row * columns + column];
+                pixels[column] = count == 0 ? 0 : toArgb(scale.getPaint(count));
+            }
+            image.setRGB(0, rows - 1 - row, columns, 1, pixels, 0, columns);
+        }
+        return image;
+    }
+
+    private static int toArgb(Paint paint) {
+        return paint instanceof Color ? ((Color) paint).getRGB() : Color.BLACK.getRGB();
+    }
+
+    /**
+     * Color scale for point counts: logarithmic, from light blue for a single
+     * point through purple to yellow for the densest cell
+     */
+    public static final class CountScale implements PaintScale {
+
+        private static final Color[] STOPS = {
+            new Color(0xC6DBEF), new Color(0x4A6FE3), new Color(0x7B2D8E), new Color(0xE8543F), new Color(0xFDE725)
+        };
+
+        private final double upperBound;
+        private final Color[] colors = new Color[256];
+
+        public CountScale(int maxCount) {
+            this.upperBound = Math.max(2, maxCount);
+            for (int i = 0; i < colors.length; i++) {
+                double position = (double) i / (colors.length - 1) * (STOPS.length - 1);
+                int stop = Math.min(STOPS.length - 2, (int) position);
+                colors[i] = interpolate(STOPS[stop], STOPS[stop + 1], position - stop);
+            }
+        }
+
+        @Override
+        public double getLowerBound() {
+            return 1;
+        }
+
+        @Override
+        public double getUpperBound() {
+            return upperBound;
+        }
+
+        @Override
+        public Paint getPaint(double value) {
+            double fraction = Math.log(Math.max(1, Math.min(value, upperBound))) / Math.log(upperBound);
+            return colors[(int) Math.round(fraction * (colors.length - 1))];
+        }
+
+        private static Color interpolate(Color from, Color to, double fraction) {
+            return new Color(
+                (int) Math.round(from.getRed() + (to.getRed() - from.getRed()) * fraction),
+                (int) Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * fraction),
+                (int) Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * fraction));
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.dvs.service;
+
+import com.dvs.model.DataSet;
+import com.dvs.model.DataSetBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Level-of-detail reduction for XY series.
+ * Selects the rows of a DataSet to plot so that a series of millions of
+ * points is drawn with about as many points as the plot is wide. The
+ * selection is returned as row indexes, the DataSet itself is not copied.
+ *
+ * Both algorithms cut the rows into buckets by row index and therefore
+ * assume the rows are ordered by x, as in a time series. Rows where x or y
+ * is not a number are skipped.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Rows of [from, to) to plot under the given options, in row order
+     */
+    public static int[] selectRows(DataSet dataSet, int xColumn, int yColumn, int from, int to, ChartOptions options) {
+        int maxPoints = options.getMaxPoints();
+        if (options.getDownsampling() == ChartOptions.Downsampling.NONE
+                || countValid(dataSet, xColumn, yColumn, from, to, maxPoints + 1) <= maxPoints) {
+            return validRows(dataSet, xColumn, yColumn, from, to);
+        }
+        if (options.getDownsampling() == ChartOptions.Downsampling.MIN_MAX) {
+            return minMax(dataSet, xColumn, yColumn, from, to, maxPoints);
+        }
+        return largestTriangleThreeBuckets(dataSet, xColumn, yColumn, from, to, maxPoints);
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: keep the first and last point and, from
+     * each of threshold - 2 buckets in between, the point forming the largest
+     * triangle with the point kept from the previous bucket and the average
+     * of the next bucket
+     */
+    public static int[] largestTriangleThreeBuckets(DataSet dataSet, int xColumn, int yColumn,
+            int from, int to, int threshold) {
+        int first = firstValid(dataSet, xColumn, yColumn, from, to);
+        int last = lastValid(dataSet, xColumn, yColumn, from, to);
+        if (first < 0) {
+            return new int[0];
+        }
+        int buckets = Math.max(1, threshold - 2);
+        int[] rows = new int[buckets + 2];
+        int count = 0;
+        rows[count++] = first;
+
+        int selected = first;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            ChartService.checkCancelled();
+            int bucketStart = boundary(first, last, buckets, bucket);
+            int bucketEnd = boundary(first, last, buckets, bucket + 1);
+            int nextStart = bucketEnd;
+            int nextEnd = bucket + 1 < buckets ? boundary(first, last, buckets, bucket + 2) : last + 1;
+
+            // Average of the next bucket, or the last point when it holds no numbers
+            double averageX = 0;
+            double averageY = 0;
+            int points = 0;
+            for (int row = nextStart; row < nextEnd; row++) {
+                if (isValid(dataSet, xColumn, yColumn, row)) {
+                    averageX += dataSet.getDouble(row, xColumn);
+                    averageY += dataSet.getDouble(row, yColumn);
+                    points++;
+                }
+            }
+            if (points > 0) {
+                averageX /= points;
+                averageY /= points;
+            } else {
+                averageX = dataSet.getDouble(last, xColumn);
+                averageY = dataSet.getDouble(last, yColumn);
+            }
+
+            double selectedX = dataSet.getDouble(selected, xColumn);
+            double selectedY = dataSet.getDouble(selected, yColumn);
+            double maxArea = -1;
+            int best = -1;
+            for (int row = bucketStart; row < bucketEnd; row++) {
+                if (!isValid(dataSet, xColumn, yColumn, row)) {
+                    continue;
+                }
+                // Twice the triangle area, the factor does not change the maximum
+                double area = Math.abs((selectedX - averageX) * (dataSet.getDouble(row, yColumn) - selectedY)
+                    - (selectedX - dataSet.getDouble(row, xColumn)) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = row;
+                }
+            }
+            if (best >= 0) {
+                rows[count++] = best;
+                selected = best;
+            }
+        }
+
+        if (last != first) {
+            rows[count++] = last;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Min/max bucketing: keep the first and last point and the lowest and
+     * highest point of each of (maxPoints - 2) / 2 buckets in between, so no
+     * peak is lost
+     */
+    public static int[] minMax(DataSet dataSet, int xColumn, int yColumn, int from, int to, int maxPoints) {
+        int first = firstValid(dataSet, xColumn, yColumn, from, to);
+        int last = lastValid(dataSet, xColumn, yColumn, from, to);
+        if (first < 0) {
+            return new int[0];
+        }
+        int buckets = Math.max(1, (maxPoints - 2) / 2);
+        int[] rows = new int[2 * buckets + 2];
+        int count = 0;
+        rows[count++] = first;
+
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            ChartService.checkCancelled();
+            int bucketEnd = boundary(first, last, buckets, bucket + 1);
+            int minRow = -1;
+            int maxRow = -1;
+            for (int row = boundary(first, last, buckets, bucket); row < bucketEnd; row++) {
+                if (!isValid(dataSet, xColumn, yColumn, row)) {
+                    continue;
+                }
+                double y = dataSet.getDouble(row, yColumn);
+                if (minRow < 0 || y < dataSet.getDouble(minRow, yColumn)) {
+                    minRow = row;
+                }
+                if (maxRow < 0 || y > dataSet.getDouble(maxRow, yColumn)) {
+                    maxRow = row;
+                }
+            }
+            if (minRow >= 0) {
+                rows[count++] = Math.min(minRow, maxRow);
+                if (minRow != maxRow) {
+                    rows[count++] = Math.max(minRow, maxRow);
+                }
+            }
+        }
+
+        if (last != first) {
+            rows[count++] = last;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Copy of the x and y columns ordered by x, ties kept in row order, for
+     * series that are not ascending. Rows where x or y is not a number are
+     * left out, so the copy is ascending and can be downsampled.
+     */
+    public static DataSet sortByX(DataSet dataSet, int xColumn, int yColumn) {
+        int[] rows = validRows(dataSet, xColumn, yColumn, 0, dataSet.getRowCount());
+        double[] xs = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            xs[i] = dataSet.getDouble(rows[i], xColumn);
+        }
+        // Bottom-up merge sort of the positions, stable unlike a primitive sort
+        int[] order = new int[rows.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] merged = new int[order.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            ChartService.checkCancelled();
+            for (int low = 0; low < order.length; low += 2 * width) {
+                int middle = Math.min(low + width, order.length);
+                int high = Math.min(low + 2 * width, order.length);
+                int left = low;
+                int right = middle;
+                for (int k = low; k < high; k++) {
+                    if (left < middle && (right >= high || xs[order[left]] <= xs[order[right]])) {
+                        merged[k] = order[left++];
+                    } else {
+                        merged[k] = order[right++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+
+        DataSetBuilder builder = new DataSetBuilder(Arrays.asList(dataSet.getColumnName(xColumn),
+            dataSet.getColumnName(yColumn)));
+        for (int position : order) {
+            builder.appendDouble(0, xs[position]);
+            builder.appendDouble(1, dataSet.getDouble(rows[position], yColumn));
+            builder.endRow();
+        }
+        return builder.build(dataSet.getName());
+    }
+
+    /**
+     * Whether every row of [from, to) has a numeric x and x never decreases,
+     * the precondition of {@link #lowerBound} and {@link #upperBound}
+     */
+    public static boolean isAscending(DataSet dataSet, int xColumn, int from, int to) {
+        double previous = Double.NEGATIVE_INFINITY;
+        for (int row = from; row < to; row++) {
+            ChartService.checkCancelled(row);
+            if (!dataSet.isNumber(row, xColumn)) {
+                return false;
+            }
+            double x = dataSet.getDouble(row, xColumn);
+            if (x < previous) {
+                return false;
+            }
+            previous = x;
+        }
+        return true;
+    }
+
+    /**
+     * First row of [from, to) whose x is at least the given value, or to if
+     * there is none. The rows must be ascending in x.
+     */
+    public static int lowerBound(DataSet dataSet, int xColumn, int from, int to, double x) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (dataSet.getDouble(middle, xColumn) < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First row of [from, to) whose x is above the given value, or to if
+     * there is none. The rows must be ascending in x.
+     */
+    public static int upperBound(DataSet dataSet, int xColumn, int from, int to, double x) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (dataSet.getDouble(middle, xColumn) <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Start of a bucket when the rows strictly between first and last are cut
+     * into the given number of buckets; bucket == buckets gives last
+     */
+    private static int boundary(int first, int last, int buckets, int bucket) {
+        return first + 1 + (int) ((long) bucket * (last - first - 1) / buckets);
+    }
+
+    private static boolean isValid(DataSet dataSet, int xColumn, int yColumn, int row) {
+        return dataSet.isNumber(row, xColumn) && dataSet.isNumber(row, yColumn);
+    }
+
+    private static int firstValid(DataSet dataSet, int xColumn, int yColumn, int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (isValid(dataSet, xColumn, yColumn, row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastValid(DataSet dataSet, int xColumn, int yColumn, int from, int to) {
+        for (int row = to - 1; row >= from; row--) {
+            if (isValid(dataSet, xColumn, yColumn, row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Number of valid rows, counting stops at limit
+     */
+    private static int countValid(DataSet dataSet, int xColumn, int yColumn, int from, int to, int limit) {
+        int count = 0;
+        for (int row = from; row < to && count < limit; row++) {
+            if (isValid(dataSet, xColumn, yColumn, row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] validRows(DataSet dataSet, int xColumn, int yColumn, int from, int to) {
+        int[] rows = new int[countValid(dataSet, xColumn, yColumn, from, to, Integer.MAX_VALUE)];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (isValid(dataSet, xColumn, yColumn, row)) {
+                rows[count++] = row;
+            }
+        }
+        return rows;
+    }
+}
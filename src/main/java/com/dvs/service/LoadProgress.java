@@ -0,0 +1,69 @@
+package com.dvs.service;
+
+/**
+ * Snapshot of the progress of a running data load
+ */
+public class LoadProgress {
+
+    private final long rowsLoaded;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long elapsedNanos;
+
+    public LoadProgress(long rowsLoaded, long bytesRead, long totalBytes, long elapsedNanos) {
+        this.rowsLoaded = rowsLoaded;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Total size of the input in bytes, or -1 if unknown
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Fraction of the input consumed so far, between 0 and 1
+     */
+    public double getFraction() {
+        if (totalBytes <= 0) {
+            return 0.0;
+        }
+        return Math.min(1.0, (double) bytesRead / totalBytes);
+    }
+
+    public double getRowsPerSecond() {
+        return perSecond(rowsLoaded);
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytesRead);
+    }
+
+    private double perSecond(long amount) {
+        if (elapsedNanos <= 0) {
+            return 0.0;
+        }
+        return amount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows, %,d bytes (%.0f rows/s, %.1f MB/s)",
+            rowsLoaded, bytesRead, getRowsPerSecond(), getBytesPerSecond() / (1024 * 1024));
+    }
+}
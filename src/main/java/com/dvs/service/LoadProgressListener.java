@@ -0,0 +1,24 @@
+package com.dvs.service;
+
+import com.dvs.model.DataSet;
+
+/**
+ * Receives progress updates while a dataset is being loaded
+ */
+public interface LoadProgressListener {
+
+    /** Maximum number of rows passed to {@link #previewAvailable(DataSet)} */
+    int PREVIEW_ROWS = 100;
+
+    /**
+     * Called periodically from the loading thread
+     */
+    void progressUpdated(LoadProgress progress);
+
+    /**
+     * Called once from the loading thread with the first rows of the file,
+     * while the rest is still being parsed
+     */
+    default void previewAvailable(DataSet preview) {
+    }
+}
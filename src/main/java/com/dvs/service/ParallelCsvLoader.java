@@ -0,0 +1,307 @@
+package com.dvs.service;
+
+import com.dvs.model.ColumnType;
+import com.dvs.model.DataSet;
+import com.dvs.model.DataSetBuilder;
+import com.dvs.model.NumberScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads large CSV files on all cores.
+ * The file is cut into byte ranges that start on record boundaries, each
+ * range is memory mapped, tokenized and converted into its own columnar
+ * block on a fork-join pool, and the blocks are appended to the result in
+ * file order. Column types are inferred from the first rows; numeric fields
+ * are parsed straight from the mapped bytes into primitive column vectors
+ * and Strings are only created for text fields.
+ *
+ * Record boundaries are found exactly, even with newlines inside quoted
+ * fields: every chunk counts its quote characters and remembers its first
+ * newline seen after an even and after an odd number of quotes. The quote
+ * parity at the start of each chunk then tells which of the two newlines
+ * ends a record.
+ */
+public class ParallelCsvLoader {
+
+    /** Target size of one parsing chunk */
+    private static final long CHUNK_SIZE = 16L * 1024 * 1024;
+
+    private static final int HEADER_PROBE_SIZE = 64 * 1024;
+
+    /** Maximum number of bytes read to sample rows for type inference */
+    private static final int SAMPLE_SIZE = 1024 * 1024;
+
+    /** Number of records parsed between two cancellation checks */
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private final int parallelism;
+
+    public ParallelCsvLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelCsvLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Load a CSV file, reporting progress to the listener (may be null)
+     * each time a chunk has been appended to the result.
+     * Interrupting the calling thread stops all parsing tasks and makes the
+     * load fail with an {@link InterruptedIOException}.
+     */
+    public DataSet load(File csvFile, LoadProgressListener listener) throws IOException {
+        long startTime = System.nanoTime();
+        DataSet dataSet = new DataSet(csvFile.getName());
+
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            List<String> header = new ArrayList<>();
+            long dataStart = readHeader(channel, fileSize, header);
+            for (String columnName : header) {
+                dataSet.addColumn(columnName);
+            }
+            ColumnType[] types = inferColumnTypes(channel, dataStart, fileSize, header.size());
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            AtomicBoolean cancelled = new AtomicBoolean();
+            try {
+                long[] recordStarts = findRecordStarts(pool, channel, dataStart, fileSize);
+
+                List<ForkJoinTask<DataSet>> blocks = new ArrayList<>();
+                for (int i = 0; i < recordStarts.length - 1; i++) {
+                    long from = recordStarts[i];
+                    long to = recordStarts[i + 1];
+                    blocks.add(pool.submit(() -> parseBlock(channel, from, to, header, types,
+                        Integer.MAX_VALUE, cancelled)));
+                }
+                if (listener != null) {
+                    listener.previewAvailable(parseBlock(channel, recordStarts[0], recordStarts[1], header, types,
+                        LoadProgressListener.PREVIEW_ROWS, cancelled));
+                }
+
+                for (int i = 0; i < blocks.size(); i++) {
+                    dataSet.appendRows(blocks.get(i).get());
+                    blocks.set(i, null);
+                    if (listener != null) {
+                        listener.progressUpdated(new LoadProgress(dataSet.getRowCount(), recordStarts[i + 1],
+                            fileSize, System.nanoTime() - startTime));
+                    }
+                }
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("CSV load cancelled");
+            } finally {
+                // Running blocks stop at their next cancellation check
+                cancelled.set(true);
+                pool.shutdownNow();
+            }
+        } catch (ClosedByInterruptException e) {
+            throw new InterruptedIOException("CSV load cancelled");
+        }
+
+        return dataSet;
+    }
+
+    /**
+     * Parse the header record into column names and return the offset of the first data record
+     */
+    private long readHeader(FileChannel channel, long fileSize, List<String> header) throws IOException {
+        if (fileSize == 0) {
+            throw new IOException("CSV file is empty");
+        }
+        int probeSize = (int) Math.min(fileSize, HEADER_PROBE_SIZE);
+        while (true) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, probeSize);
+            int offset = skipByteOrderMark(bytes);
+            CsvTokenizer tokenizer = new CsvTokenizer(bytes, offset, probeSize);
+            boolean found = tokenizer.nextRecord();
+            boolean complete = tokenizer.getPosition() < probeSize || probeSize == fileSize;
+            if (complete || !found) {
+                if (!found) {
+                    throw new IOException("CSV file is empty");
+                }
+                for (int i = 0; i < tokenizer.getFieldCount(); i++) {
+                    header.add(tokenizer.getString(i));
+                }
+                return tokenizer.getPosition();
+            }
+            // The header did not fit in the probe, try a larger one
+            probeSize = (int) Math.min(Math.min(fileSize, (long) probeSize * 2), Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Infer the column types from the first records of the file
+     */
+    private ColumnType[] inferColumnTypes(FileChannel channel, long dataStart, long fileSize, int columnCount)
+            throws IOException {
+        int length = (int) Math.min(fileSize - dataStart, SAMPLE_SIZE);
+        CsvTokenizer tokenizer = new CsvTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, dataStart, length), 0, length);
+        ColumnTypeInference inference = new ColumnTypeInference(columnCount);
+        for (int row = 0; row < ColumnTypeInference.SAMPLE_ROWS && tokenizer.nextRecord(); row++) {
+            for (int j = 0; j < tokenizer.getFieldCount(); j++) {
+                inference.add(j, tokenizer.scanNumber(j));
+            }
+        }
+        return inference.getTypes();
+    }
+
+    /**
+     * Split [dataStart, fileSize) into ranges that each begin on a record boundary.
+     * Returns the sorted range start offsets followed by fileSize.
+     */
+    private long[] findRecordStarts(ForkJoinPool pool, FileChannel channel, long dataStart, long fileSize)
+            throws InterruptedException, ExecutionException {
+        long dataSize = fileSize - dataStart;
+        int chunkCount = (int) Math.max(1, Math.min((dataSize + CHUNK_SIZE - 1) / CHUNK_SIZE, Integer.MAX_VALUE));
+        if (dataSize > 0 && chunkCount < parallelism) {
+            chunkCount = (int) Math.min(parallelism, dataSize);
+        }
+
+        List<ForkJoinTask<QuoteScan>> scans = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            long from = dataStart + dataSize * i / chunkCount;
+            long to = dataStart + dataSize * (i + 1) / chunkCount;
+            scans.add(pool.submit(() -> scanQuotes(channel, from, to)));
+        }
+
+        List<Long> starts = new ArrayList<>();
+        starts.add(dataStart);
+        long quotesBefore = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            QuoteScan scan = scans.get(i).get();
+            if (i > 0) {
+                long newline = (quotesBefore & 1) == 0 ? scan.firstEvenNewline : scan.firstOddNewline;
+                if (newline >= 0 && newline + 1 < fileSize) {
+                    starts.add(newline + 1);
+                }
+            }
+            quotesBefore += scan.quotes;
+        }
+        starts.add(fileSize);
+
+        long[] result = new long[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    private QuoteScan scanQuotes(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        QuoteScan scan = new QuoteScan();
+        int length = (int) (to - from);
+        for (int i = 0; i < length; i++) {
+            byte b = bytes.get(i);
+            if (b == '"') {
+                scan.quotes++;
+            } else if (b == '\n') {
+                if ((scan.quotes & 1) == 0) {
+                    if (scan.firstEvenNewline < 0) {
+                        scan.firstEvenNewline = from + i;
+                    }
+                } else if (scan.firstOddNewline < 0) {
+                    scan.firstOddNewline = from + i;
+                }
+            }
+        }
+        return scan;
+    }
+
+    /**
+     * Parse the records of [from, to) into a block of at most maxRows rows
+     */
+    private DataSet parseBlock(FileChannel channel, long from, long to, List<String> header, ColumnType[] types,
+            int maxRows, AtomicBoolean cancelled) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("CSV record at offset " + from + " is too large");
+        }
+        int length = (int) (to - from);
+        int columnCount = header.size();
+        DataSetBuilder block = new DataSetBuilder(header);
+        CsvTokenizer tokenizer = new CsvTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, from, length), 0, length);
+        while (block.getRowCount() < maxRows && tokenizer.nextRecord()) {
+            if (block.getRowCount() % CANCEL_CHECK_INTERVAL == 0 && cancelled.get()) {
+                throw new InterruptedIOException("CSV load cancelled");
+            }
+            int fieldCount = tokenizer.getFieldCount();
+            for (int j = 0; j < columnCount; j++) {
+                if (j >= fieldCount) {
+                    block.appendNull(j);
+                } else if (types[j] == ColumnType.STRING) {
+                    String text = tokenizer.getString(j);
+                    if (text.isEmpty()) {
+                        block.appendNull(j);
+                    } else {
+                        block.appendValue(j, text);
+                    }
+                } else {
+                    appendScanned(block, tokenizer, j, types[j]);
+                }
+            }
+            block.endRow();
+        }
+        return block.build(null);
+    }
+
+    private static void appendScanned(DataSetBuilder block, CsvTokenizer tokenizer, int column, ColumnType type) {
+        switch (tokenizer.scanNumber(column)) {
+            case NumberScanner.INTEGER:
+                block.appendLong(column, tokenizer.getLongValue());
+                break;
+            case NumberScanner.DECIMAL:
+                block.appendDouble(column, tokenizer.getDoubleValue());
+                break;
+            case NumberScanner.BLANK:
+                block.appendNull(column);
+                break;
+            default:
+                // Text in a numeric column is treated as a missing value
+                if (type.isNumeric()) {
+                    block.appendNull(column);
+                } else {
+                    block.appendValue(column, tokenizer.getString(column));
+                }
+                break;
+        }
+    }
+
+    private static int skipByteOrderMark(ByteBuffer bytes) {
+        if (bytes.limit() >= 3 && (bytes.get(0) & 0xFF) == 0xEF && (bytes.get(1) & 0xFF) == 0xBB
+                && (bytes.get(2) & 0xFF) == 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Failed to parse CSV file: " + cause.getMessage(), cause);
+    }
+
+    /** Quote statistics of one chunk */
+    private static class QuoteScan {
+        long quotes;
+        long firstEvenNewline = -1;
+        long firstOddNewline = -1;
+    }
+}
@@ -0,0 +1,107 @@
+package com.dvs.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pool of the Strings decoded by a tokenizer, keyed by their UTF-8 bytes.
+ * Category columns repeat a handful of labels over millions of rows; looking
+ * the bytes up here returns the String built the first time instead of
+ * decoding a new one per cell, and the column dictionaries then hash a String
+ * whose hash code is already cached.
+ *
+ * Only short values are pooled and the pool stops growing at a fixed number
+ * of entries, so columns of unique text cost a lookup but no memory beyond
+ * that. Not thread-safe, each tokenizer has its own pool.
+ */
+final class StringPool {
+
+    /** Longer values are unlikely to repeat and are always decoded */
+    static final int MAX_LENGTH = 64;
+
+    /** Distinct values kept at most */
+    static final int MAX_ENTRIES = 1 << 16;
+
+    // Open addressing with linear probing, at most half full
+    private byte[][] keys = new byte[256][];
+    private String[] values = new String[256];
+    private int[] hashes = new int[256];
+    private int size;
+
+    /**
+     * String of the first length bytes of the array
+     */
+    String get(byte[] bytes, int length) {
+        if (length == 0) {
+            return "";
+        }
+        if (length > MAX_LENGTH) {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        int hash = hash(bytes, length);
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], bytes, length)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        if (size < MAX_ENTRIES) {
+            keys[slot] = Arrays.copyOf(bytes, length);
+            values[slot] = value;
+            hashes[slot] = hash;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the high bits over the low ones used to pick a slot
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(byte[] key, byte[] bytes, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[oldKeys.length * 2];
+        hashes = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dvs.service;
+
+import com.dvs.model.DataSet;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
+import org.jfree.data.Range;
+
+/**
+ * Keeps a downsampled line chart exact when zooming.
+ * Listens to the domain axis and, whenever the visible range changes,
+ * locates the visible rows by binary search over the x column and
+ * downsamples just that slice to the point budget. Zooming in far enough
+ * therefore shows every row, while the whole series is never re-read.
+ *
+ * Requires the rows to be ascending in x, see {@link Downsampler#isAscending}.
+ * Axis changes happen on the EDT, so the slice is resampled there.
+ */
+public class ViewportResampler implements AxisChangeListener {
+
+    private final DataSetXYDataset dataset;
+    private final int[] allRows;
+    private final ChartOptions options;
+    private int from;
+    private int to;
+
+    /**
+     * @param dataset the series to update, showing allRows
+     * @param allRows the rows selected for the whole series, restored when
+     *                the axis goes back to auto range
+     */
+    public ViewportResampler(DataSetXYDataset dataset, int[] allRows, ChartOptions options) {
+        this.dataset = dataset;
+        this.allRows = allRows;
+        this.options = options;
+        this.from = 0;
+        this.to = dataset.getDataSet().getRowCount();
+    }
+
+    @Override
+    public void axisChanged(AxisChangeEvent event) {
+        ValueAxis axis = (ValueAxis) event.getAxis();
+        DataSet dataSet = dataset.getDataSet();
+        int rowCount = dataSet.getRowCount();
+
+        int newFrom = 0;
+        int newTo = rowCount;
+        if (!axis.isAutoRange()) {
+            // One row beyond each edge so the line runs to the border of the plot
+            Range range = axis.getRange();
+            int xColumn = dataset.getXColumn();
+            newFrom = Math.max(0, Downsampler.lowerBound(dataSet, xColumn, 0, rowCount, range.getLowerBound()) - 1);
+            newTo = Math.min(rowCount, Downsampler.upperBound(dataSet, xColumn, newFrom, rowCount, range.getUpperBound()) + 1);
+        }
+        if (newFrom == from && newTo == to) {
+            return;
+        }
+
+        from = newFrom;
+        to = newTo;
+        if (from == 0 && to == rowCount) {
+            dataset.setRows(allRows);
+        } else {
+            dataset.setRows(Downsampler.selectRows(dataSet, dataset.getXColumn(), dataset.getYColumn(), from, to, options));
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.dvs.simple;
 
+import com.dvs.model.ColumnCursor;
+import com.dvs.model.ColumnStats;
 import com.dvs.model.DataSet;
+import com.dvs.model.NumberScanner;
+import com.dvs.ui.DataSetTableModel;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,6 +15,7 @@ import java.awt.*;
  */
 public class SimpleApp extends JFrame {
     private JTextArea dataArea;
+    private DataSetTableModel dataTableModel;
     private JButton loadSampleButton;
     private JButton loadCsvButton;
     private JButton showDataButton;
@@ -23,7 +28,7 @@ public class SimpleApp extends JFrame {
     private void initializeUI() {
         setTitle("Data Visualization System - Simple Version");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(600, 400);
+        setSize(800, 600);
         setLocationRelativeTo(null);
         
         // Create layout
@@ -42,15 +47,21 @@ public class SimpleApp extends JFrame {
     buttonPanel.add(showDataButton);
     buttonPanel.add(showChartButton);
         
-        // Center panel with text area
-        dataArea = new JTextArea();
+        // Center panel with messages above the data table
+        dataArea = new JTextArea(6, 0);
         dataArea.setEditable(false);
         dataArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-        JScrollPane scrollPane = new JScrollPane(dataArea);
+        dataTableModel = new DataSetTableModel();
+        JTable dataTable = new JTable(dataTableModel);
+        dataTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        dataTable.setFillsViewportHeight(true);
+        JSplitPane centerPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+            new JScrollPane(dataArea), new JScrollPane(dataTable));
+        centerPane.setResizeWeight(0.3);
         
         // Add components
         add(buttonPanel, BorderLayout.NORTH);
-        add(scrollPane, BorderLayout.CENTER);
+        add(centerPane, BorderLayout.CENTER);
         add(new JLabel("Simple Data Visualization System - Core functionality test"), BorderLayout.SOUTH);
         
         // Add event listeners
@@ -82,7 +93,8 @@ public class SimpleApp extends JFrame {
             currentData = sampleData;
             showChartButton.setEnabled(true);
 
-            dataArea.setText("Sample data loaded successfully!\n\n" + sampleData.getPreviewText());
+            dataTableModel.setDataSet(sampleData);
+            dataArea.setText("Sample data loaded successfully!\n\n" + summary(sampleData));
 
             JOptionPane.showMessageDialog(this, "Sample data loaded successfully!\nDataSet contains " +
                     sampleData.getRowCount() + " rows and " + sampleData.getColumnCount() + " columns.");
@@ -102,6 +114,7 @@ public class SimpleApp extends JFrame {
             String header = br.readLine();
             if (header == null) throw new IllegalArgumentException("Empty file");
             String[] cols = header.split(",");
+            NumberScanner scanner = new NumberScanner();
             DataSet ds = new DataSet(file.getName());
             for (String c : cols) ds.addColumn(c.trim());
             String line;
@@ -110,24 +123,25 @@ public class SimpleApp extends JFrame {
                 String[] parts = line.split(",");
                 java.util.List<Object> row = new java.util.ArrayList<>();
                 for (int i = 0; i < cols.length; i++) {
-                    String v = i < parts.length ? parts[i].trim() : "";
-                    // attempt numeric parse
-                    Object val;
-                    try { val = Integer.valueOf(v); } catch (Exception ex1) {
-                        try { val = Double.valueOf(v); } catch (Exception ex2) { val = v; }
-                    }
-                    row.add(val);
+                    String v = i < parts.length ? parts[i] : "";
+                    // numeric parse without exceptions
+                    row.add(scanner.toValue(v));
                 }
                 ds.addRow(row);
             }
             currentData = ds;
             showChartButton.setEnabled(true);
-            dataArea.setText("CSV loaded: " + file.getName() + "\n\n" + ds.getPreviewText());
+            dataTableModel.setDataSet(ds);
+            dataArea.setText("CSV loaded: " + file.getName() + "\n\n" + summary(ds));
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Failed to load CSV: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private static String summary(DataSet ds) {
+        return "Dataset: " + ds.getName() + "\nRows: " + ds.getRowCount() + ", Columns: " + ds.getColumnCount();
+    }
+
     private void showBarChart() {
         if (currentData == null || currentData.getColumnCount() < 2) {
             JOptionPane.showMessageDialog(this, "Need at least 2 columns (Category, Value)");
@@ -152,13 +166,21 @@ public class SimpleApp extends JFrame {
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             int w = getWidth(); int h = getHeight();
             java.util.List<Object> cats = ds.getColumnData(0);
-            java.util.List<Object> vals = ds.getColumnData(1);
             // Extract numeric values
             java.util.List<Double> numbers = new java.util.ArrayList<>();
-            for (Object v : vals) if (v instanceof Number) numbers.add(((Number) v).doubleValue()); else {
-                try { numbers.add(Double.parseDouble(String.valueOf(v))); } catch (Exception ignored) { numbers.add(0d);} }
+            NumberScanner scanner = new NumberScanner();
+            ColumnCursor vals = ds.cursor(1);
+            while (vals.next()) if (vals.isNumber()) numbers.add(vals.getDouble()); else {
+                switch (scanner.scan(String.valueOf(vals.getValue()))) {
+                    case NumberScanner.INTEGER: numbers.add((double) scanner.getLongValue()); break;
+                    case NumberScanner.DECIMAL: numbers.add(scanner.getDoubleValue()); break;
+                    default: numbers.add(0d);
+                } }
             if (numbers.isEmpty()) { g2.drawString("No numeric data", 20, 20); return; }
-            double max = numbers.stream().mapToDouble(d -> d).max().orElse(1);
+            // The column keeps its maximum, text values parsed above are not part of it
+            ColumnStats stats = ds.getColumnStats(1);
+            double max = stats.getNumericCount() == ds.getRowCount() ? stats.getMax()
+                : numbers.stream().mapToDouble(d -> d).max().orElse(1);
             int leftPad = 60; int bottomPad = 60; int topPad = 30; int rightPad = 20;
             int chartW = w - leftPad - rightPad; int chartH = h - topPad - bottomPad;
             // Axes
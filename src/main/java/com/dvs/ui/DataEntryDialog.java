@@ -1,6 +1,7 @@
 package com.dvs.ui;
 
 import com.dvs.model.DataSet;
+import com.dvs.model.NumberScanner;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -236,6 +237,7 @@ public class DataEntryDialog extends JDialog {
             }
             
             // Add data rows (skip first row which contains headers)
+            NumberScanner scanner = new NumberScanner();
             for (int i = 1; i < tableModel.getRowCount(); i++) {
                 List<Object> rowData = new ArrayList<>();
                 boolean hasData = false;
@@ -244,19 +246,10 @@ public class DataEntryDialog extends JDialog {
                     Object value = tableModel.getValueAt(i, j);
                     if (value != null && !value.toString().trim().isEmpty()) {
                         hasData = true;
-                        // Try to parse as number
-                        String strValue = value.toString().trim();
-                        try {
-                            if (strValue.contains(".")) {
-                                rowData.add(Double.parseDouble(strValue));
-                            } else {
-                                rowData.add(Integer.parseInt(strValue));
-                            }
-                        } catch (NumberFormatException e) {
-                            rowData.add(strValue);
-                        }
+                        // Convert to a number when possible
+                        rowData.add(scanner.toValue(value.toString()));
                     } else {
-                        rowData.add("");
+                        rowData.add(null);
                     }
                 }
                 
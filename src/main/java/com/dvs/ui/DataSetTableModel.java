@@ -0,0 +1,74 @@
+package com.dvs.ui;
+
+import javax.swing.table.AbstractTableModel;
+
+import com.dvs.model.DataSet;
+
+/**
+ * Read-only table model over a DataSet.
+ * Cells are read from the dataset when the table asks for them, so a JTable
+ * only touches the rows in its viewport and nothing is copied: scrolling
+ * through millions of rows costs the same as through ten. Numeric columns
+ * are reported as Number so they are right aligned.
+ *
+ * The dataset must not change without {@link #setDataSet} or
+ * {@link #fireTableDataChanged()} being called afterwards.
+ */
+public class DataSetTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient DataSet dataSet;
+    private String[] columnNames = new String[0];
+    private Class<?>[] columnClasses = new Class<?>[0];
+
+    public DataSetTableModel() {
+    }
+
+    public DataSetTableModel(DataSet dataSet) {
+        setDataSet(dataSet);
+    }
+
+    /**
+     * Show another dataset, or nothing when null
+     */
+    public void setDataSet(DataSet dataSet) {
+        this.dataSet = dataSet;
+        int columns = dataSet != null ? dataSet.getColumnCount() : 0;
+        columnNames = dataSet != null ? dataSet.getColumnNames().toArray(new String[0]) : new String[0];
+        columnClasses = new Class<?>[columns];
+        for (int column = 0; column < columns; column++) {
+            columnClasses[column] = dataSet.isNumericColumn(column) ? Number.class : Object.class;
+        }
+        fireTableStructureChanged();
+    }
+
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    @Override
+    public int getRowCount() {
+        return dataSet != null ? dataSet.getRowCount() : 0;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columnClasses[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return dataSet.getValue(row, column);
+    }
+}
@@ -4,8 +4,13 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
-import java.awt.Font;
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.BorderFactory;
 import javax.swing.Icon;
@@ -20,16 +25,27 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
-import javax.swing.JTextArea;
+import javax.swing.JTable;
 import javax.swing.JToolBar;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+
 import com.dvs.model.DataSet;
+import com.dvs.model.DataSetSnapshot;
+import com.dvs.service.ChartExporter;
+import com.dvs.service.ChartOptions;
 import com.dvs.service.ChartService;
 import com.dvs.service.DataService;
+import com.dvs.service.LoadProgress;
+import com.dvs.service.LoadProgressListener;
 
 /**
  * Main window of the Data Visualization System
@@ -38,20 +54,38 @@ import com.dvs.service.DataService;
 public class MainWindow extends JFrame {
     
     private static final long serialVersionUID = 1L;
+    
+    /** Resolution of the load progress bar */
+    private static final int PROGRESS_SCALE = 1000;
     private JPanel contentPane;
     private JPanel chartPanel;
-    private JTextArea dataPreviewArea;
+    private DataSetTableModel dataTableModel;
+    private JLabel dataSummaryLabel;
     private JButton importCSVButton;
     private JButton loadSampleButton;
     private JButton manualDataButton;
     private JButton generateChartButton;
     private JButton exportChartButton;
     private JComboBox<String> chartTypeCombo;
+    private JLabel statusLabel;
+    private JProgressBar loadProgressBar;
+    private JButton cancelLoadButton;
     
     private DataService dataService;
     private ChartService chartService;
     private DataSet currentDataSet;
     private JPanel lastChartComponent; // holds reference for export
+    private SwingWorker<DataSet, LoadProgress> loadWorker; // running file load, if any
+    
+    // Charts are built off the EDT; only the result of the latest request is shown
+    private final ExecutorService chartExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chart-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> chartTask;
+    private long chartRequest;
+    private boolean updatingChartTypes;
     
     /**
      * Create the main window
@@ -98,9 +132,12 @@ public class MainWindow extends JFrame {
         JMenu fileMenu = new JMenu("File");
         JMenuItem importItem = new JMenuItem("Import CSV");
         JMenuItem exportItem = new JMenuItem("Export Chart");
+        JMenuItem saveSnapshotItem = new JMenuItem("Save Snapshot");
         JMenuItem exitItem = new JMenuItem("Exit");
+        saveSnapshotItem.addActionListener(e -> saveSnapshot());
         
         fileMenu.add(importItem);
+        fileMenu.add(saveSnapshotItem);
         fileMenu.add(exportItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
@@ -116,11 +153,13 @@ public class MainWindow extends JFrame {
         // Chart menu
         JMenu chartMenu = new JMenu("Chart");
         JMenuItem barChartItem = new JMenuItem("Bar Chart");
+        JMenuItem groupedBarChartItem = new JMenuItem("Grouped Bar Chart");
         JMenuItem pieChartItem = new JMenuItem("Pie Chart");
         JMenuItem lineChartItem = new JMenuItem("Line Chart");
         JMenuItem scatterPlotItem = new JMenuItem("Scatter Plot");
         
         chartMenu.add(barChartItem);
+        chartMenu.add(groupedBarChartItem);
         chartMenu.add(pieChartItem);
         chartMenu.add(lineChartItem);
         chartMenu.add(scatterPlotItem);
@@ -161,7 +200,7 @@ public class MainWindow extends JFrame {
         exportChartButton.setEnabled(false);
         
         chartTypeCombo = new JComboBox<>(new String[]{
-            "Bar Chart", "Pie Chart", "Line Chart", "Scatter Plot"
+            "Bar Chart", "Grouped Bar Chart", "Pie Chart", "Line Chart", "Scatter Plot"
         });
         
         toolBar.add(importCSVButton);
@@ -185,10 +224,15 @@ public class MainWindow extends JFrame {
         leftPanel.setBorder(BorderFactory.createTitledBorder("Data Preview"));
         leftPanel.setPreferredSize(new Dimension(300, 0));
         
-        dataPreviewArea = new JTextArea();
-        dataPreviewArea.setEditable(false);
-        dataPreviewArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-        JScrollPane dataScrollPane = new JScrollPane(dataPreviewArea);
+        // The table only renders the rows in view, whatever the size of the dataset
+        dataTableModel = new DataSetTableModel();
+        JTable dataTable = new JTable(dataTableModel);
+        dataTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        dataTable.setFillsViewportHeight(true);
+        dataTable.getTableHeader().setReorderingAllowed(false);
+        JScrollPane dataScrollPane = new JScrollPane(dataTable);
+        dataSummaryLabel = new JLabel(" ");
+        leftPanel.add(dataSummaryLabel, BorderLayout.NORTH);
         leftPanel.add(dataScrollPane, BorderLayout.CENTER);
         
         // Right panel for chart display
@@ -211,7 +255,17 @@ public class MainWindow extends JFrame {
     private void createStatusBar() {
         JPanel statusBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
         statusBar.setBorder(BorderFactory.createLoweredBevelBorder());
-        statusBar.add(new JLabel("Ready"));
+        statusLabel = new JLabel("Ready");
+        statusBar.add(statusLabel);
+        
+        loadProgressBar = new JProgressBar(0, PROGRESS_SCALE);
+        loadProgressBar.setVisible(false);
+        statusBar.add(loadProgressBar);
+        
+        cancelLoadButton = new JButton("Cancel");
+        cancelLoadButton.setVisible(false);
+        cancelLoadButton.addActionListener(e -> cancelLoad());
+        statusBar.add(cancelLoadButton);
         
         contentPane.add(statusBar, BorderLayout.SOUTH);
     }
@@ -221,22 +275,125 @@ public class MainWindow extends JFrame {
     loadSampleButton.addActionListener(e -> loadSampleData());
         manualDataButton.addActionListener(e -> openManualDataEntry());
         generateChartButton.addActionListener(e -> generateChart());
+        chartTypeCombo.addActionListener(e -> {
+            // Switching the type of a displayed chart regenerates it
+            if (!updatingChartTypes && lastChartComponent != null) {
+                generateChart();
+            }
+        });
         exportChartButton.addActionListener(e -> exportChart());
     }
     
     private void importCSVFile() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files", "csv"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files and snapshots", "csv", "dvsb"));
         
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
+            loadFileAsync(fileChooser.getSelectedFile());
+        }
+    }
+    
+    /**
+     * Load a file on a background thread. The status bar shows the bytes
+     * consumed and a Cancel button, and the first rows are previewed as soon
+     * as the loader has parsed them.
+     */
+    private void loadFileAsync(File file) {
+        if (loadWorker != null) {
+            return;
+        }
+        setLoading(true);
+        statusLabel.setText("Loading " + file.getName() + "...");
+        
+        loadWorker = new SwingWorker<DataSet, LoadProgress>() {
+            @Override
+            protected DataSet doInBackground() throws Exception {
+                return dataService.loadFile(file, new LoadProgressListener() {
+                    @Override
+                    public void progressUpdated(LoadProgress progress) {
+                        publish(progress);
+                    }
+                    
+                    @Override
+                    public void previewAvailable(DataSet preview) {
+                        SwingUtilities.invokeLater(() -> {
+                            if (!isDone()) {
+                                dataTableModel.setDataSet(preview);
+                                dataSummaryLabel.setText("Loading... first " + preview.getRowCount() + " rows");
+                            }
+                        });
+                    }
+                });
+            }
+            
+            @Override
+            protected void process(List<LoadProgress> chunks) {
+                LoadProgress progress = chunks.get(chunks.size() - 1);
+                loadProgressBar.setValue((int) (progress.getFraction() * PROGRESS_SCALE));
+                statusLabel.setText("Loading " + file.getName() + ": " + progress);
+            }
+            
+            @Override
+            protected void done() {
+                loadWorker = null;
+                setLoading(false);
+                if (isCancelled()) {
+                    statusLabel.setText("Load cancelled");
+                    updateDataPreview();
+                    return;
+                }
+                try {
+                    currentDataSet = get();
+                    updateDataPreview();
+                    postDataLoadActions();
+                    statusLabel.setText("Loaded " + file.getName() + " (" + currentDataSet.getRowCount() + " rows)");
+                    JOptionPane.showMessageDialog(MainWindow.this, "CSV file loaded successfully!");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    statusLabel.setText("Ready");
+                    updateDataPreview();
+                    JOptionPane.showMessageDialog(MainWindow.this, "Error loading CSV file: " + ex.getCause().getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        loadWorker.execute();
+    }
+    
+    private void cancelLoad() {
+        if (loadWorker != null) {
+            // Interrupts the loading thread, which makes the loaders stop parsing
+            loadWorker.cancel(true);
+        }
+    }
+    
+    private void setLoading(boolean loading) {
+        loadProgressBar.setValue(0);
+        loadProgressBar.setVisible(loading);
+        cancelLoadButton.setVisible(loading);
+        importCSVButton.setEnabled(!loading);
+    }
+
+    private void saveSnapshot() {
+        if (currentDataSet == null) {
+            JOptionPane.showMessageDialog(this, "Please load data first!");
+            return;
+        }
+        
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Dataset snapshots", "dvsb"));
+        chooser.setSelectedFile(new File(currentDataSet.getName().replaceAll("\\.csv$", "") + DataSetSnapshot.EXTENSION));
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            File out = chooser.getSelectedFile();
+            if (!DataSetSnapshot.isSnapshotFile(out)) {
+                out = new File(out.getPath() + DataSetSnapshot.EXTENSION);
+            }
             try {
-                currentDataSet = dataService.loadCSVFile(selectedFile);
-                updateDataPreview();
-                postDataLoadActions();
-                JOptionPane.showMessageDialog(this, "CSV file loaded successfully!");
+                dataService.saveSnapshot(currentDataSet, out);
+                JOptionPane.showMessageDialog(this, "Snapshot saved to " + out.getAbsolutePath());
             } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error loading CSV file: " + ex.getMessage(), 
+                JOptionPane.showMessageDialog(this, "Error saving snapshot: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
@@ -264,6 +421,11 @@ public class MainWindow extends JFrame {
         }
     }
     
+    /**
+     * Build the selected chart on the chart executor and swap it in on the EDT.
+     * A new request cancels the build in flight, and results of superseded
+     * requests are dropped.
+     */
     private void generateChart() {
         if (currentDataSet == null) {
             JOptionPane.showMessageDialog(this, "Please load data first!");
@@ -271,50 +433,81 @@ public class MainWindow extends JFrame {
         }
         
         String chartType = (String) chartTypeCombo.getSelectedItem();
-        try {
-            JPanel chart = chartService.createChart(currentDataSet, chartType);
-            lastChartComponent = chart;
-
-            chartPanel.removeAll();
-            chartPanel.add(chart, BorderLayout.CENTER);
-            chartPanel.revalidate();
-            chartPanel.repaint();
-
-            exportChartButton.setEnabled(true);
-            JOptionPane.showMessageDialog(this, "Chart generated successfully!");
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Error generating chart: " + ex.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
+        if (chartType == null) {
+            return;
+        }
+        DataSet dataSet = currentDataSet;
+        // Plot about one point per pixel of the chart area
+        ChartOptions options = ChartOptions.DEFAULT.withMaxPoints(
+            Math.max(ChartOptions.MIN_POINTS, chartPanel.getWidth() > 0 ? chartPanel.getWidth() : ChartOptions.DEFAULT_MAX_POINTS));
+        long request = ++chartRequest;
+        if (chartTask != null) {
+            chartTask.cancel(true);
+        }
+        statusLabel.setText("Generating " + chartType + "...");
+        
+        chartTask = chartExecutor.submit(() -> {
+            try {
+                JFreeChart chart = chartService.buildChart(dataSet, chartType, options);
+                SwingUtilities.invokeLater(() -> showChart(request, chart, chartType));
+            } catch (CancellationException ex) {
+                // Superseded by a newer request
+            } catch (RuntimeException ex) {
+                SwingUtilities.invokeLater(() -> showChartError(request, ex));
+            }
+        });
+    }
+    
+    private void showChart(long request, JFreeChart chart, String chartType) {
+        if (request != chartRequest) {
+            return;
+        }
+        // Cached charts are shown again, the old panel must stop listening to them
+        if (lastChartComponent instanceof ChartPanel) {
+            ((ChartPanel) lastChartComponent).setChart(null);
+        }
+        JPanel chartComponent = chartService.createChartPanel(chart);
+        lastChartComponent = chartComponent;
+        
+        chartPanel.removeAll();
+        chartPanel.add(chartComponent, BorderLayout.CENTER);
+        chartPanel.revalidate();
+        chartPanel.repaint();
+        
+        exportChartButton.setEnabled(true);
+        statusLabel.setText(chartType + " generated");
+    }
+    
+    private void showChartError(long request, Exception ex) {
+        if (request != chartRequest) {
+            return;
         }
+        statusLabel.setText("Ready");
+        JOptionPane.showMessageDialog(this, "Error generating chart: " + ex.getMessage(), 
+            "Error", JOptionPane.ERROR_MESSAGE);
     }
     
     private void exportChart() {
-        if (lastChartComponent == null) {
+        if (!(lastChartComponent instanceof ChartPanel)) {
             JOptionPane.showMessageDialog(this, "No chart to export");
             return;
         }
 
         JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Images (*.png, *.jpg, *.svg)", "png", "jpg", "jpeg", "svg"));
         chooser.setSelectedFile(new File("chart.png"));
         if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             File out = chooser.getSelectedFile();
+            ChartExporter.Format format = ChartExporter.Format.forFile(out);
+            if (format == null) {
+                format = ChartExporter.Format.PNG;
+                out = new File(out.getPath() + "." + format.getExtension());
+            }
             try {
-                // If this is a JFreeChart ChartPanel, use ChartUtils; else snapshot the component
-                if (lastChartComponent.getClass().getName().contains("ChartPanel")) {
-                    try {
-                        // Reflection to avoid hard compile dependency in simplified builds
-                        java.lang.reflect.Method getChart = lastChartComponent.getClass().getMethod("getChart");
-                        Object chartObj = getChart.invoke(lastChartComponent);
-                        Class<?> chartUtils = Class.forName("org.jfree.chart.ChartUtils");
-                        java.lang.reflect.Method save = chartUtils.getMethod("saveChartAsPNG", File.class, Class.forName("org.jfree.chart.JFreeChart"), int.class, int.class);
-                        save.invoke(null, out, chartObj, Math.max(600, lastChartComponent.getWidth()), Math.max(400, lastChartComponent.getHeight()));
-                    } catch (Exception reflectionEx) {
-                        // Fallback: snapshot
-                        snapshotComponent(lastChartComponent, out);
-                    }
-                } else {
-                    snapshotComponent(lastChartComponent, out);
-                }
+                // Rendered headlessly at the size shown, at least 600x400
+                JFreeChart chart = ((ChartPanel) lastChartComponent).getChart();
+                chartService.exportChart(chart, out.getPath(), Math.max(600, lastChartComponent.getWidth()),
+                    Math.max(400, lastChartComponent.getHeight()), format.getExtension());
                 JOptionPane.showMessageDialog(this, "Chart exported to " + out.getAbsolutePath());
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Export failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -323,12 +516,23 @@ public class MainWindow extends JFrame {
     }
     
     private void updateDataPreview() {
+        dataTableModel.setDataSet(currentDataSet);
         if (currentDataSet != null) {
-            dataPreviewArea.setText(currentDataSet.getPreviewText());
+            dataSummaryLabel.setText(currentDataSet.getName() + ": " + currentDataSet.getRowCount() + " rows, "
+                + currentDataSet.getColumnCount() + " columns");
+        } else {
+            dataSummaryLabel.setText(" ");
         }
     }
 
     private void postDataLoadActions() {
+        // A chart still being built for the previous data is stale
+        if (chartTask != null) {
+            chartTask.cancel(true);
+            chartRequest++;
+        }
+        // Charts of the previous data cannot be shown again
+        chartService.clearCache();
         generateChartButton.setEnabled(true);
         updateChartTypeSuggestions();
     }
@@ -337,8 +541,13 @@ public class MainWindow extends JFrame {
         if (currentDataSet == null) return;
         java.util.List<String> suggestions = dataService.getSuggestedChartTypes(currentDataSet);
         if (!suggestions.isEmpty()) {
-            chartTypeCombo.removeAllItems();
-            for (String s : suggestions) chartTypeCombo.addItem(s);
+            updatingChartTypes = true;
+            try {
+                chartTypeCombo.removeAllItems();
+                for (String s : suggestions) chartTypeCombo.addItem(s);
+            } finally {
+                updatingChartTypes = false;
+            }
         }
     }
     
@@ -346,19 +555,4 @@ public class MainWindow extends JFrame {
         // Simple text-based icon
         return new ImageIcon();
     }
-
-    private void snapshotComponent(JPanel comp, File file) throws Exception {
-        int w = Math.max(600, comp.getWidth());
-        int h = Math.max(400, comp.getHeight());
-        java.awt.image.BufferedImage img = new java.awt.image.BufferedImage(w, h, java.awt.image.BufferedImage.TYPE_INT_ARGB);
-        java.awt.Graphics2D g2 = img.createGraphics();
-        g2.setColor(Color.WHITE);
-        g2.fillRect(0,0,w,h);
-        // Layout and paint to ensure full render
-        comp.setSize(w,h);
-        comp.doLayout();
-        comp.paint(g2);
-        g2.dispose();
-        javax.imageio.ImageIO.write(img, "png", file);
-    }
 }
@@ -0,0 +1,82 @@
+package com.dvs.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Round trip tests for the .dvsb snapshot format
+ */
+public class DataSetSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DataSet createMixedData() {
+        DataSet dataSet = new DataSet("Mixed");
+        dataSet.addColumn("Id");
+        dataSet.addColumn("Price");
+        dataSet.addColumn("Category");
+        dataSet.addColumn("Mixed");
+        dataSet.addColumn("Empty");
+        for (int i = 0; i < 200; i++) {
+            dataSet.addRow(i, i * 1.5, i % 7 == 0 ? null : "cat" + (i % 5),
+                i % 2 == 0 ? Long.valueOf(i) : "text" + i, null);
+        }
+        dataSet.setValue(3, 1, null);
+        dataSet.setValue(4, 0, 5_000_000_000L);
+        return dataSet;
+    }
+
+    private static void assertSameData(DataSet expected, DataSet actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getColumnNames(), actual.getColumnNames());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        assertEquals(expected.getData(), actual.getData());
+    }
+
+    @Test
+    public void shouldRoundTripAllColumnTypes() throws IOException {
+        DataSet original = createMixedData();
+        File file = folder.newFile("mixed" + DataSetSnapshot.EXTENSION);
+
+        DataSetSnapshot.write(original, file);
+        DataSet restored = DataSetSnapshot.read(file);
+
+        assertSameData(original, restored);
+        assertNull(restored.getValue(3, 1));
+        assertTrue(restored.isNull(0, 2));
+        assertEquals(5_000_000_000L, restored.getLong(4, 0));
+    }
+
+    @Test
+    public void shouldKeepRestoredDataSetEditable() throws IOException {
+        DataSet original = createMixedData();
+        File file = folder.newFile("edit" + DataSetSnapshot.EXTENSION);
+        DataSetSnapshot.write(original, file);
+
+        DataSet restored = DataSetSnapshot.read(file);
+        restored.addRow(1000, 2.5, "cat1", "x", "y");
+        original.addRow(1000, 2.5, "cat1", "x", "y");
+        assertSameData(original, restored);
+
+        // Overwriting the file the dataset was read from must not lose data
+        DataSetSnapshot.write(restored, file);
+        assertSameData(original, DataSetSnapshot.read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        File file = folder.newFile("data" + DataSetSnapshot.EXTENSION);
+        Files.write(file.toPath(), "Name,Value\nA,1\n".getBytes("UTF-8"));
+        DataSetSnapshot.read(file);
+    }
+}
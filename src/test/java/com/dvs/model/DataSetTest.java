@@ -0,0 +1,256 @@
+package com.dvs.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the columnar DataSet storage
+ */
+public class DataSetTest {
+
+    private DataSet createSalesData() {
+        DataSet dataSet = new DataSet("Sales");
+        dataSet.addColumn("Product");
+        dataSet.addColumn("Sales");
+        dataSet.addRow("Laptops", 1500);
+        dataSet.addRow("Phones", 2300);
+        dataSet.addRow("Laptops", 1800);
+        return dataSet;
+    }
+
+    @Test
+    public void shouldStoreNumericColumnsAsPrimitives() {
+        DataSet dataSet = createSalesData();
+
+        assertEquals(3, dataSet.getRowCount());
+        assertEquals(2300.0, dataSet.getDouble(1, 1), 0.0);
+        assertEquals(1800L, dataSet.getLong(2, 1));
+        assertEquals(Integer.valueOf(1500), dataSet.getValue(0, 1));
+        assertEquals("Laptops", dataSet.getValue(2, 0));
+        assertTrue(dataSet.isNumber(0, 1));
+        assertFalse(dataSet.isNumber(0, 0));
+    }
+
+    @Test
+    public void shouldPromoteColumnWhenValueDoesNotFit() {
+        DataSet dataSet = createSalesData();
+
+        dataSet.setValue(1, 1, 2.5);
+        assertEquals(Double.valueOf(1500.0), dataSet.getValue(0, 1));
+        assertEquals(2.5, dataSet.getDouble(1, 1), 0.0);
+
+        dataSet.setValue(2, 1, "n/a");
+        assertEquals("n/a", dataSet.getValue(2, 1));
+        assertFalse(dataSet.isNumber(2, 1));
+        assertEquals(2.5, dataSet.getDouble(1, 1), 0.0);
+    }
+
+    @Test
+    public void shouldBackfillMissingValuesForNewColumns() {
+        DataSet dataSet = createSalesData();
+        dataSet.addColumn("Quarter");
+
+        assertNull(dataSet.getValue(0, 2));
+        assertTrue(dataSet.isNull(0, 2));
+        assertTrue(Double.isNaN(dataSet.getDouble(0, 2)));
+
+        dataSet.setValue(0, 2, "Q1");
+        assertEquals("Q1", dataSet.getValue(0, 2));
+    }
+
+    @Test
+    public void shouldKeepRowOrientedAccessors() {
+        DataSet dataSet = createSalesData();
+
+        assertEquals(Arrays.<Object>asList("Laptops", "Phones", "Laptops"), dataSet.getColumnData("Product"));
+        assertEquals(Arrays.<Object>asList("Phones", 2300), dataSet.getData().get(1));
+        assertTrue(dataSet.getColumnData(5).isEmpty());
+    }
+
+    @Test
+    public void shouldExposeReadOnlyViewsAndCursors() {
+        DataSet dataSet = createSalesData();
+        dataSet.addColumn("Quarter");
+
+        assertEquals(ColumnType.STRING, dataSet.getColumnType(0));
+        assertTrue(dataSet.isNumericColumn(1));
+        assertEquals(ColumnType.EMPTY, dataSet.getColumnType(2));
+        assertEquals("Sales", dataSet.getColumnName(1));
+
+        List<Object> sales = dataSet.getColumnData(1);
+        try {
+            sales.set(0, 1);
+            fail("Column data must be read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            dataSet.getColumnNames().add("Region");
+            fail("Column names must be read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+        // Views read the dataset when accessed
+        dataSet.setValue(0, 1, 1600);
+        assertEquals(1600, sales.get(0));
+        assertEquals(Arrays.<Object>asList("Laptops", 1600, null), dataSet.getData().get(0));
+
+        ColumnCursor cursor = dataSet.cursor(1);
+        double sum = 0;
+        while (cursor.next()) {
+            sum += cursor.getDouble();
+        }
+        assertEquals(3, cursor.getRow());
+        assertEquals(1600 + 2300 + 1800, sum, 0.0);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void shouldMaintainColumnStats() {
+        DataSet dataSet = createSalesData();
+        dataSet.addRow("Tablets", null);
+
+        ColumnStats sales = dataSet.getColumnStats(1);
+        assertEquals(ColumnType.LONG, sales.getType());
+        assertEquals(4, sales.getRowCount());
+        assertEquals(3, sales.getCount());
+        assertEquals(1, sales.getNullCount());
+        assertEquals(1500, sales.getMin(), 0.0);
+        assertEquals(2300, sales.getMax(), 0.0);
+        assertEquals(5600, sales.getSum(), 0.0);
+        assertEquals(1500.0 * 1500 + 2300.0 * 2300 + 1800.0 * 1800, sales.getSumOfSquares(), 0.0);
+        assertEquals(4, dataSet.getColumnStats(0).getCount());
+        assertEquals(0, dataSet.getColumnStats(0).getNumericCount());
+        assertTrue(Double.isNaN(dataSet.getColumnStats(0).getMin()));
+
+        // Overwriting the maximum
+        dataSet.setValue(1, 1, 900);
+        sales = dataSet.getColumnStats(1);
+        assertEquals(900, sales.getMin(), 0.0);
+        assertEquals(1800, sales.getMax(), 0.0);
+        assertEquals(4200, sales.getSum(), 0.0);
+
+        dataSet.setValue(3, 1, "n/a");
+        sales = dataSet.getColumnStats(1);
+        assertEquals(ColumnType.OBJECT, sales.getType());
+        assertEquals(4, sales.getCount());
+        assertEquals(3, sales.getNumericCount());
+
+        dataSet.removeRow(1);
+        sales = dataSet.getColumnStats(1);
+        assertEquals(3, sales.getRowCount());
+        assertEquals(1500, sales.getMin(), 0.0);
+        assertEquals(3300, sales.getSum(), 0.0);
+        assertEquals(Arrays.<Object>asList("Laptops", 1800), dataSet.getData().get(1));
+
+        DataSet more = createSalesData();
+        more.appendRows(createSalesData());
+        sales = more.getColumnStats(1);
+        assertEquals(6, sales.getNumericCount());
+        assertEquals(11200, sales.getSum(), 0.0);
+        assertEquals(5600.0 / 3, sales.getMean(), 1e-9);
+    }
+
+    @Test
+    public void shouldTrackMissingValuesInBitmap() {
+        DataSet dataSet = new DataSet("Sparse");
+        dataSet.addColumn("Value");
+        for (int row = 0; row < 200; row++) {
+            dataSet.addRow(row % 3 == 0 ? Integer.valueOf(row) : null);
+        }
+        assertEquals(0, dataSet.nextNonNull(0, 0));
+        assertEquals(3, dataSet.nextNonNull(1, 0));
+        assertEquals(198, dataSet.nextNonNull(197, 0));
+        assertEquals(200, dataSet.nextNonNull(199, 0));
+        assertEquals(200, dataSet.nextNonNull(0, 1));
+        assertEquals(67, dataSet.getColumnStats(0).getCount());
+
+        // Removing a row moves the following bits down across words
+        dataSet.removeRow(1);
+        assertEquals(2, dataSet.nextNonNull(1, 0));
+        assertEquals(Integer.valueOf(63), dataSet.getValue(62, 0));
+        assertTrue(dataSet.isNull(63, 0));
+        assertEquals(Integer.valueOf(66), dataSet.getValue(65, 0));
+        assertEquals(199, dataSet.getRowCount());
+
+        // Appending at an offset that is not a multiple of 64
+        DataSet combined = createSalesData();
+        DataSet more = new DataSet("More");
+        more.addColumn("Product");
+        more.addColumn("Sales");
+        for (int row = 0; row < 100; row++) {
+            more.addRow("Item " + row, row == 70 ? 70 : null);
+        }
+        combined.appendRows(more);
+        assertEquals(73, combined.nextNonNull(3, 1));
+        assertEquals(103, combined.nextNonNull(74, 1));
+        assertEquals(4, combined.getColumnStats(1).getCount());
+
+        // Blank values are missing, overwriting a missing value clears its bit
+        combined.setValue(80, 1, " ");
+        assertTrue(combined.isNull(80, 1));
+        combined.setValue(80, 1, 5);
+        assertEquals(80, combined.nextNonNull(74, 1));
+    }
+
+    @Test
+    public void shouldFindAndSelectRowsByValue() {
+        DataSet dataSet = createSalesData();
+        dataSet.addRow("Tablets", null);
+
+        assertTrue(Arrays.equals(new int[] {0, 2}, dataSet.findRows(0, "Laptops")));
+        assertEquals(0, dataSet.findRows(0, "Monitors").length);
+        assertTrue(Arrays.equals(new int[] {1}, dataSet.findRows(1, 2300.0)));
+        assertTrue(Arrays.equals(new int[] {3}, dataSet.findRows(1, null)));
+        assertEquals(0, dataSet.findRows(1, "2300").length);
+
+        DataSet laptops = dataSet.selectRows(dataSet.findRows(0, "Laptops"));
+        assertEquals(2, laptops.getRowCount());
+        assertEquals(ColumnType.STRING, laptops.getColumnType(0));
+        assertEquals(Arrays.<Object>asList("Laptops", 1800), laptops.getData().get(1));
+        assertEquals(3300, laptops.getColumnStats(1).getSum(), 0.0);
+
+        // The selection is a copy
+        laptops.setValue(0, 1, 1);
+        assertEquals(Integer.valueOf(1500), dataSet.getValue(0, 1));
+    }
+
+    @Test
+    public void viewsShouldFollowChangesWithoutAliasing() {
+        DataSet dataSet = createSalesData();
+        dataSet.setData(dataSet.getData());
+        assertEquals(3, dataSet.getRowCount());
+        assertEquals(Arrays.<Object>asList("Phones", 2300), dataSet.getData().get(1));
+
+        List<Object> sales = dataSet.getColumnData(1);
+        dataSet.removeRow(0);
+        assertEquals(Arrays.<Object>asList(2300, 1800), sales);
+        try {
+            sales.get(2);
+            fail("Removed rows must not be readable");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void shouldCountModifications() {
+        DataSet dataSet = createSalesData();
+        long version = dataSet.getVersion();
+
+        dataSet.getValue(0, 0);
+        dataSet.setValue(-1, 0, "ignored");
+        assertEquals(version, dataSet.getVersion());
+
+        dataSet.setValue(0, 1, 42);
+        assertEquals(version + 1, dataSet.getVersion());
+        dataSet.addRow("Monitors", 700);
+        dataSet.setName("Renamed");
+        assertEquals(version + 3, dataSet.getVersion());
+    }
+}
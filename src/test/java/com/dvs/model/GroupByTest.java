@@ -0,0 +1,140 @@
+package com.dvs.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for the group-by aggregation
+ */
+public class GroupByTest {
+
+    private DataSet createSalesData() {
+        DataSet dataSet = new DataSet("Sales");
+        dataSet.addColumn("Product");
+        dataSet.addColumn("Sales");
+        dataSet.addRow("Laptops", 1500);
+        dataSet.addRow("Phones", 2300);
+        dataSet.addRow("Laptops", 1800);
+        dataSet.addRow(null, 100);
+        dataSet.addRow("Tablets", "n/a");
+        return dataSet;
+    }
+
+    @Test
+    public void shouldAggregateRepeatedCategories() {
+        DataSet sales = createSalesData();
+        GroupBy groupBy = new GroupBy(1);
+
+        DataSet sums = groupBy.aggregate(sales, 0, 1, AggregateFunction.SUM);
+        assertEquals(Arrays.asList("Product", "Sum of Sales"), sums.getColumnNames());
+        assertEquals(4, sums.getRowCount());
+        assertEquals(Arrays.asList("Laptops", 3300.0), sums.getData().get(0));
+        assertEquals(Arrays.asList("Phones", 2300.0), sums.getData().get(1));
+        assertNull(sums.getValue(2, 0));
+        assertNull(sums.getValue(3, 1));
+
+        assertEquals(2L, groupBy.aggregate(sales, 0, 1, AggregateFunction.COUNT).getLong(0, 1));
+        assertEquals(1L, groupBy.aggregate(sales, 0, 1, AggregateFunction.COUNT).getLong(3, 1));
+        assertEquals(1650.0, groupBy.aggregate(sales, 0, 1, AggregateFunction.MEAN).getDouble(0, 1), 0.0);
+        assertEquals(1500.0, groupBy.aggregate(sales, 0, 1, AggregateFunction.MIN).getDouble(0, 1), 0.0);
+        assertEquals(1800.0, groupBy.aggregate(sales, 0, 1, AggregateFunction.MAX).getDouble(0, 1), 0.0);
+    }
+
+    @Test
+    public void shouldFoldSmallGroupsIntoOther() {
+        DataSet sales = createSalesData();
+        sales.addRow("Phones", 100);
+        sales.addRow("Monitors", 2300);
+        sales.addRow("Cables", 5);
+
+        DataSet top = new GroupBy(1).aggregate(sales, 0, 1, AggregateFunction.SUM, 2);
+        assertEquals(3, top.getRowCount());
+        assertEquals(Arrays.asList("Laptops", 3300.0), top.getData().get(0));
+        assertEquals(Arrays.asList("Phones", 2400.0), top.getData().get(1));
+        assertEquals(Arrays.asList(GroupBy.OTHER, 2405.0), top.getData().get(2));
+
+        // Ties go to the first group, groups without numbers rank last
+        DataSet counts = new GroupBy(1).aggregate(sales, 0, 1, AggregateFunction.COUNT, 3);
+        assertEquals(Arrays.asList("Laptops", "Phones", null, GroupBy.OTHER), counts.getColumnData(0));
+        assertEquals(3L, counts.getLong(3, 1));
+        DataSet means = new GroupBy(1).aggregate(sales, 0, 1, AggregateFunction.MEAN, 1);
+        assertEquals(Arrays.asList("Monitors", GroupBy.OTHER), means.getColumnData(0));
+        assertEquals(5805.0 / 6, means.getDouble(1, 1), 1e-9);
+    }
+
+    @Test
+    public void shouldKeepFoldedGroupApartFromRealOtherKey() {
+        DataSet dataSet = new DataSet("Categories");
+        dataSet.addColumn("Category");
+        dataSet.addColumn("Value");
+        String[] categories = {"A", "B", "C", "Other", "D", "E"};
+        for (int i = 0; i < categories.length; i++) {
+            dataSet.addRow(categories[i], 10 * (i + 1));
+        }
+
+        DataSet top = new GroupBy(1).aggregate(dataSet, 0, 1, AggregateFunction.SUM, 3);
+        assertEquals(Arrays.asList("Other", "D", "E", "Other (3 categories)"), top.getColumnData(0));
+        assertEquals(40.0, top.getDouble(0, 1), 0.0);
+        assertEquals(60.0, top.getDouble(3, 1), 0.0);
+
+        dataSet.addRow("Other (4 categories)", 1);
+        top = new GroupBy(1).aggregate(dataSet, 0, 1, AggregateFunction.SUM, 3);
+        assertEquals("Other (4 categories) 2", top.getValue(3, 0));
+    }
+
+    @Test
+    public void shouldPivotIntoCrossTab() {
+        DataSet sales = new DataSet("Sales");
+        sales.addColumn("Product");
+        sales.addColumn("Sales");
+        sales.addColumn("Quarter");
+        sales.addRow("Laptops", 1500, "Q1");
+        sales.addRow("Phones", 2300, "Q1");
+        sales.addRow("Laptops", 1800, "Q2");
+        sales.addRow("Laptops", 200, "Q2");
+        sales.addRow("Tablets", 950, "Q3");
+        sales.addRow(7L, 100, null);
+
+        DataSet pivot = new GroupBy().pivot(sales, 0, 2, 1, AggregateFunction.SUM);
+
+        assertEquals(Arrays.asList("Product", "Q1", "Q2", "Q3", "null"), pivot.getColumnNames());
+        assertEquals(4, pivot.getRowCount());
+        assertEquals(Arrays.asList("Laptops", 1500.0, 2000.0, null, null), pivot.getData().get(0));
+        assertEquals(Arrays.asList("Phones", 2300.0, null, null, null), pivot.getData().get(1));
+        assertEquals(950.0, pivot.getDouble(2, 3), 0.0);
+        assertEquals(100.0, pivot.getDouble(3, 4), 0.0);
+
+        DataSet counts = new GroupBy().pivot(sales, 0, 2, 1, AggregateFunction.COUNT);
+        assertEquals(2L, counts.getLong(0, 2));
+        assertNull(counts.getValue(0, 3));
+    }
+
+    @Test
+    public void parallelShouldMatchSequential() {
+        DataSet dataSet = new DataSet("Transactions");
+        dataSet.addColumn("Store");
+        dataSet.addColumn("Region");
+        dataSet.addColumn("Amount");
+        for (int i = 0; i < 600_000; i++) {
+            long store = (i * 7919L) % 1013;
+            dataSet.addRow(store, "region" + (i * 31 % 17), (i % 100) / 4.0);
+        }
+        dataSet.setValue(12345, 0, null);
+
+        for (int keyColumn : new int[] {0, 1}) {
+            for (AggregateFunction function : AggregateFunction.values()) {
+                DataSet expected = new GroupBy(1).aggregate(dataSet, keyColumn, 2, function);
+                DataSet actual = new GroupBy(4).aggregate(dataSet, keyColumn, 2, function);
+                assertEquals(expected.getRowCount(), actual.getRowCount());
+                for (int row = 0; row < expected.getRowCount(); row++) {
+                    assertEquals(expected.getValue(row, 0), actual.getValue(row, 0));
+                    assertEquals(expected.getDouble(row, 1), actual.getDouble(row, 1), 1e-6);
+                }
+            }
+        }
+    }
+}
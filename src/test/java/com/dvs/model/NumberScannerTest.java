@@ -0,0 +1,60 @@
+package com.dvs.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the exception-free number scanner
+ */
+public class NumberScannerTest {
+
+    private final NumberScanner scanner = new NumberScanner();
+
+    @Test
+    public void shouldClassifyValues() {
+        assertEquals(NumberScanner.BLANK, scanner.scan("  "));
+        assertEquals(NumberScanner.TEXT, scanner.scan("Laptops"));
+        assertEquals(NumberScanner.TEXT, scanner.scan("12abc"));
+        assertEquals(NumberScanner.TEXT, scanner.scan("1e"));
+        assertEquals(NumberScanner.TEXT, scanner.scan("-"));
+
+        assertEquals(NumberScanner.INTEGER, scanner.scan(" -1500 "));
+        assertEquals(-1500L, scanner.getLongValue());
+
+        assertEquals(NumberScanner.DECIMAL, scanner.scan("2.5e3"));
+        assertEquals(2500.0, scanner.getDoubleValue(), 0.0);
+    }
+
+    @Test
+    public void shouldKeepParseValueTypes() {
+        assertEquals(Integer.valueOf(42), NumberScanner.parseValue("42"));
+        assertEquals(Long.valueOf(12345678901L), NumberScanner.parseValue("12345678901"));
+        assertEquals(Double.valueOf(0.5), NumberScanner.parseValue(".5"));
+        assertEquals("Q1", NumberScanner.parseValue(" Q1 "));
+        assertNull(NumberScanner.parseValue(""));
+        assertNull(NumberScanner.parseValue(null));
+    }
+
+    @Test
+    public void shouldMatchDoubleParseDouble() {
+        Random random = new Random(42);
+        String[] samples = {"0.1", "123.456", "-0.0", "1e-300", "9007199254740993", "3.14159265358979323846",
+            "123456789012345678901234", "4.9e-324", "1.7976931348623157e308"};
+        for (String sample : samples) {
+            assertEquals(sample, Double.parseDouble(sample), valueOf(sample), 0.0);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            String text = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+            assertEquals(text, Double.parseDouble(text), valueOf(text), 0.0);
+        }
+    }
+
+    private double valueOf(String text) {
+        int result = scanner.scan(text);
+        return result == NumberScanner.INTEGER ? scanner.getLongValue() : scanner.getDoubleValue();
+    }
+}
@@ -0,0 +1,95 @@
+package com.dvs.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dvs.model.DataSet;
+import com.opencsv.exceptions.CsvException;
+
+/**
+ * Tests for the headless batch rendering
+ */
+public class BatchRendererTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String name, String... lines) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void shouldRenderEveryJob() throws Exception {
+        write("sales.csv", "Product,Sales,Quarter", "Laptops,1500,Q1", "Phones,2300,Q1", "Laptops,1800,Q2");
+        File jobFile = write("jobs.csv",
+            "input,chart,output,width,height",
+            "# Daily report",
+            "sales.csv,Bar Chart,out/bar.png,640,480",
+            "sales.csv,Pie Chart,out/pie.svg",
+            "sales.csv,Bar Chart,out/bar-copy.jpg,640,480",
+            "missing.csv,Bar Chart,out/missing.png");
+
+        List<BatchRenderer.Job> jobs = BatchRenderer.readJobs(jobFile);
+        assertEquals(4, jobs.size());
+        assertEquals(BatchRenderer.DEFAULT_WIDTH, jobs.get(1).getWidth());
+
+        BatchRenderer.Report report = new BatchRenderer(2).run(jobs);
+        assertEquals(3, report.getChartCount());
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().get(0).contains("missing.csv"));
+        assertTrue(new File(folder.getRoot(), "out/bar.png").length() > 0);
+        assertTrue(new File(folder.getRoot(), "out/pie.svg").length() > 0);
+        assertTrue(report.getLatencyMillis(50) <= report.getLatencyMillis(100));
+    }
+
+    @Test
+    public void shouldHoldNoMoreInputsThanThreads() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            write("input" + i + ".csv", "Product,Sales", "Laptops," + i, "Phones,2300");
+            for (int j = 0; j < 3; j++) {
+                lines.add("input" + i + ".csv,Bar Chart,out/chart" + i + "-" + j + ".png,200,150");
+            }
+        }
+        File jobFile = write("jobs.csv", lines.toArray(new String[0]));
+
+        AtomicInteger resident = new AtomicInteger();
+        AtomicInteger maxResident = new AtomicInteger();
+        DataService dataService = new DataService() {
+            @Override
+            public DataSet loadFile(File file, LoadProgressListener listener) throws IOException, CsvException {
+                DataSet dataSet = super.loadFile(file, listener);
+                maxResident.accumulateAndGet(resident.incrementAndGet(), Math::max);
+                return dataSet;
+            }
+        };
+        ChartService chartService = new ChartService() {
+            @Override
+            public void evictCache(DataSet dataSet) {
+                resident.decrementAndGet();
+                super.evictCache(dataSet);
+            }
+        };
+
+        BatchRenderer.Report report = new BatchRenderer(dataService, chartService, 2).run(BatchRenderer.readJobs(jobFile));
+        assertEquals(24, report.getChartCount());
+        assertTrue(report.getFailures().toString(), report.getFailures().isEmpty());
+        assertEquals(0, resident.get());
+        assertTrue("resident inputs: " + maxResident.get(), maxResident.get() <= 2);
+    }
+}
@@ -0,0 +1,202 @@
+package com.dvs.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the chart server of the web front-end
+ */
+public class ChartServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ChartServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        List<String> lines = new ArrayList<>(Arrays.asList("x,y"));
+        for (int i = 0; i < 10_000; i++) {
+            lines.add(i + "," + (i % 100));
+        }
+        Files.write(new File(folder.getRoot(), "series.csv").toPath(), lines, StandardCharsets.UTF_8);
+
+        server = new ChartServer(folder.getRoot(), null);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    private HttpURLConnection open(String path) throws Exception {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+
+    private static String read(HttpURLConnection connection) throws Exception {
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) > 0;) {
+            body.write(buffer, 0, n);
+        }
+        in.close();
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldServeAggregatesOfUploadedData() throws Exception {
+        HttpURLConnection upload = open("/api/datasets?name=sales.csv");
+        upload.setRequestMethod("POST");
+        upload.setDoOutput(true);
+        try (OutputStream out = upload.getOutputStream()) {
+            out.write("Product,Sales\nLaptops,1500\nPhones,2300\nLaptops,1800\n".getBytes(StandardCharsets.UTF_8));
+        }
+        String info = read(upload);
+        assertEquals(200, upload.getResponseCode());
+        assertTrue(info, info.contains("\"rows\":3"));
+        assertTrue(info, info.contains("{\"name\":\"Sales\",\"numeric\":true,\"nulls\":0,\"min\":1500,\"max\":2300}"));
+
+        String aggregate = read(open("/api/datasets/sales.csv/aggregate?function=sum"));
+        assertEquals("{\"label\":\"Sum of Sales\",\"labels\":[\"Laptops\",\"Phones\"],\"values\":[3300,2300]}",
+            aggregate);
+        String filtered = read(open("/api/datasets/sales.csv/aggregate?function=sum&where=0&equals=Laptops"));
+        assertEquals("{\"label\":\"Sum of Sales\",\"labels\":[\"Laptops\"],\"values\":[3300]}", filtered);
+
+        HttpURLConnection chart = open("/api/datasets/sales.csv/chart?type=Bar+Chart&width=320&height=240");
+        assertEquals(200, chart.getResponseCode());
+        assertEquals("image/png", chart.getContentType());
+        assertTrue(chart.getContentLength() > 0);
+    }
+
+    @Test
+    public void shouldDownsampleSeriesOfDataDirectory() throws Exception {
+        assertTrue(read(open("/api/datasets")).contains("{\"name\":\"series.csv\""));
+
+        String series = read(open("/api/datasets/series.csv/series?x=0&y=1&points=50"));
+        assertTrue(series, series.contains("\"rows\":10000"));
+        int points = series.substring(series.indexOf("\"y\":[")).split(",").length;
+        assertEquals(50, points);
+
+        String zoomed = read(open("/api/datasets/series.csv/series?points=50&from=100&to=119"));
+        assertTrue(zoomed, zoomed.contains("\"rows\":22,\"x\":[99,100,"));
+    }
+
+    private String requestWithOrigin(String method, String path, String origin) throws Exception {
+        return request(method, path, "localhost:" + server.getPort(), origin);
+    }
+
+    /**
+     * Raw request, HttpURLConnection does not let Host and Origin headers through
+     */
+    private String request(String method, String path, String host, String origin) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.getOutputStream().write((method + " " + path + " HTTP/1.1\r\nHost: " + host
+                + (origin != null ? "\r\nOrigin: " + origin : "")
+                + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            InputStream in = socket.getInputStream();
+            for (int n; (n = in.read(buffer)) > 0;) {
+                response.write(buffer, 0, n);
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void shouldRefuseRequestsOfOtherOrigins() throws Exception {
+        String foreign = requestWithOrigin("GET", "/api/datasets", "http://evil.example");
+        assertTrue(foreign, foreign.startsWith("HTTP/1.1 403"));
+        assertFalse(foreign, foreign.contains("series.csv"));
+        assertFalse(foreign, foreign.toLowerCase(Locale.ROOT).contains("access-control-allow-origin"));
+        assertTrue(requestWithOrigin("POST", "/api/datasets?name=a.csv", "http://evil.example")
+            .startsWith("HTTP/1.1 403"));
+
+        String same = requestWithOrigin("GET", "/api/datasets", "http://localhost:" + server.getPort());
+        assertTrue(same, same.startsWith("HTTP/1.1 200"));
+        assertFalse(same, same.toLowerCase(Locale.ROOT).contains("access-control-allow-origin"));
+
+        server.setAllowedOrigin("https://user.github.io");
+        String allowed = requestWithOrigin("GET", "/api/datasets", "https://user.github.io");
+        assertTrue(allowed, allowed.startsWith("HTTP/1.1 200"));
+        assertTrue(allowed, allowed.toLowerCase(Locale.ROOT).contains("access-control-allow-origin: https://user.github.io"));
+        assertTrue(requestWithOrigin("OPTIONS", "/api/datasets", "https://user.github.io")
+            .startsWith("HTTP/1.1 204"));
+    }
+
+    @Test
+    public void shouldRefuseRequestsForOtherHosts() throws Exception {
+        // A page whose host name was pointed at 127.0.0.1 sends matching Host and Origin
+        String rebound = "evil.example:" + server.getPort();
+        String foreign = request("GET", "/api/datasets", rebound, "http://" + rebound);
+        assertTrue(foreign, foreign.startsWith("HTTP/1.1 403"));
+        assertFalse(foreign, foreign.contains("series.csv"));
+        assertTrue(request("GET", "/api/datasets", rebound, null).startsWith("HTTP/1.1 403"));
+        assertTrue(request("GET", "/api/datasets", "localhost:1", null).startsWith("HTTP/1.1 403"));
+
+        assertTrue(request("GET", "/api/datasets", "127.0.0.1:" + server.getPort(), null).startsWith("HTTP/1.1 200"));
+        assertTrue(request("GET", "/api/datasets", "[::1]:" + server.getPort(), null).startsWith("HTTP/1.1 200"));
+    }
+
+    @Test
+    public void shouldRefuseLargeUploads() throws Exception {
+        server.setMaxUploadSize(100);
+        byte[] csv = new byte[1000];
+        Arrays.fill(csv, (byte) '1');
+        csv[1] = '\n';
+
+        HttpURLConnection sized = open("/api/datasets?name=big.csv");
+        sized.setRequestMethod("POST");
+        sized.setDoOutput(true);
+        sized.setFixedLengthStreamingMode(csv.length);
+        try (OutputStream out = sized.getOutputStream()) {
+            out.write(csv);
+        }
+        assertEquals(413, sized.getResponseCode());
+
+        // Without a Content-Length the bytes are counted
+        HttpURLConnection chunked = open("/api/datasets?name=big.csv");
+        chunked.setRequestMethod("POST");
+        chunked.setDoOutput(true);
+        chunked.setChunkedStreamingMode(64);
+        try (OutputStream out = chunked.getOutputStream()) {
+            out.write(csv);
+        }
+        assertEquals(413, chunked.getResponseCode());
+        assertFalse(read(open("/api/datasets")).contains("big.csv"));
+    }
+
+    @Test
+    public void shouldReportErrors() throws Exception {
+        assertEquals(404, open("/api/datasets/missing.csv").getResponseCode());
+        assertEquals(404, open("/api/datasets/..%2Fseries.csv").getResponseCode());
+        assertEquals(400, open("/api/datasets/series.csv/aggregate?function=median").getResponseCode());
+        assertEquals(404, open("/index.html").getResponseCode());
+    }
+}
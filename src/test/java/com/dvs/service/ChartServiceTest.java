@@ -0,0 +1,313 @@
+package com.dvs.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PiePlot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.AbstractXYItemRenderer;
+import org.jfree.data.Range;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.DatasetUtils;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xy.XYDataset;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dvs.model.DataSet;
+import com.dvs.model.GroupBy;
+
+/**
+ * Tests for chart building and the dataset adapters
+ */
+public class ChartServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DataSet createTrace(int rows) {
+        DataSet dataSet = new DataSet("Trace");
+        dataSet.addColumn("Time");
+        dataSet.addColumn("Value");
+        for (int i = 0; i < rows; i++) {
+            dataSet.addRow(i, Math.sin(i / 100.0));
+        }
+        return dataSet;
+    }
+
+    @Test
+    public void shouldBuildEveryChartType() {
+        ChartService chartService = new ChartService();
+        DataSet sales = new DataService().createSampleDataSet();
+        DataSet trace = createTrace(100);
+
+        for (String chartType : new String[] {"Bar Chart", "Grouped Bar Chart", "Pie Chart"}) {
+            assertNotNull(chartService.buildChart(sales, chartType));
+        }
+        for (String chartType : new String[] {"Line Chart", "Scatter Plot"}) {
+            assertNotNull(chartService.buildChart(trace, chartType));
+        }
+    }
+
+    @Test
+    public void groupedBarChartShouldHaveSeriesPerQuarter() {
+        DataSet sales = new DataService().createSampleDataSet();
+
+        JFreeChart chart = new ChartService().buildChart(sales, "Grouped Bar Chart");
+        CategoryDataset dataset = chart.getCategoryPlot().getDataset();
+
+        assertEquals(2, dataset.getRowCount());
+        assertEquals(3, dataset.getColumnCount());
+        assertEquals(1800.0, dataset.getValue("Q2", "Laptops").doubleValue(), 0.0);
+    }
+
+    @Test
+    public void pieChartShouldFoldLongTailIntoOther() {
+        DataSet dataSet = new DataSet("Customers");
+        dataSet.addColumn("Customer");
+        dataSet.addColumn("Revenue");
+        for (int i = 0; i < 50_000; i++) {
+            dataSet.addRow("customer" + i, i % 1000);
+        }
+
+        JFreeChart chart = new ChartService().buildChart(dataSet, "Pie Chart",
+            ChartOptions.DEFAULT.withMaxCategories(10));
+        PieDataset<?> dataset = ((PiePlot<?>) chart.getPlot()).getDataset();
+
+        assertEquals(11, dataset.getItemCount());
+        assertEquals("customer999", dataset.getKey(0));
+        assertEquals(999.0, dataset.getValue(0).doubleValue(), 0.0);
+        assertEquals(GroupBy.OTHER, dataset.getKey(10));
+    }
+
+    @Test
+    public void lineChartShouldJoinUnsortedRowsInXOrder() {
+        DataSet dataSet = new DataSet("Unsorted");
+        dataSet.addColumn("x");
+        dataSet.addColumn("y");
+        dataSet.addRow(3, 30);
+        dataSet.addRow(1, 10);
+        dataSet.addRow(2, 20);
+        dataSet.addRow(1, 11);
+
+        XYDataset dataset = new ChartService().buildChart(dataSet, "Line Chart").getXYPlot().getDataset();
+        assertEquals(4, dataset.getItemCount(0));
+        double[] xs = new double[4];
+        double[] ys = new double[4];
+        for (int item = 0; item < 4; item++) {
+            xs[item] = dataset.getXValue(0, item);
+            ys[item] = dataset.getYValue(0, item);
+        }
+        assertTrue(Arrays.equals(new double[] {1, 1, 2, 3}, xs));
+        // Equal x values keep their row order
+        assertTrue(Arrays.equals(new double[] {10, 11, 20, 30}, ys));
+        assertEquals(3, dataSet.getValue(0, 0));
+    }
+
+    @Test
+    public void cacheShouldChargeSortedCopyOfLineChart() {
+        DataSet unsorted = new DataSet("Unsorted");
+        unsorted.addColumn("x");
+        unsorted.addColumn("y");
+        for (int i = 100_000; i > 0; i--) {
+            unsorted.addRow(i, i % 100);
+        }
+        DataSet sorted = createTrace(100_000);
+
+        // Room for the downsampled items, not for a copy of 100,000 rows
+        ChartService chartService = new ChartService(1 << 20);
+        assertSame(chartService.buildChart(sorted, "Line Chart"), chartService.buildChart(sorted, "Line Chart"));
+        assertNotSame(chartService.buildChart(unsorted, "Line Chart"),
+            chartService.buildChart(unsorted, "Line Chart"));
+    }
+
+    @Test
+    public void zoomShouldResampleVisibleRows() {
+        DataSet trace = createTrace(50_000);
+        JFreeChart chart = new ChartService().buildChart(trace, "Line Chart",
+            ChartOptions.DEFAULT.withMaxPoints(300));
+        XYPlot plot = chart.getXYPlot();
+        XYDataset dataset = plot.getDataset();
+
+        // Every row in view, plus one on each side
+        plot.getDomainAxis().setRange(1000, 1200);
+        assertEquals(203, dataset.getItemCount(0));
+        assertEquals(999.0, dataset.getXValue(0, 0), 0.0);
+
+        plot.getDomainAxis().setRange(1000, 40_000);
+        assertEquals(300, dataset.getItemCount(0));
+        assertEquals(40_001.0, dataset.getXValue(0, 299), 0.0);
+
+        plot.getDomainAxis().setAutoRange(true);
+        assertEquals(49_999.0, dataset.getXValue(0, dataset.getItemCount(0) - 1), 0.0);
+    }
+
+    @Test
+    public void largeScatterPlotShouldBeBinned() {
+        DataSet trace = createTrace(300_000);
+        trace.setValue(5, 1, "n/a");
+
+        DensityGrid sequential = DensityGrid.bin(trace, 0, 1, 60, 40, 1);
+        DensityGrid parallel = DensityGrid.bin(trace, 0, 1, 60, 40, 4);
+        long points = 0;
+        for (int row = 0; row < 40; row++) {
+            for (int column = 0; column < 60; column++) {
+                assertEquals(sequential.getCount(column, row), parallel.getCount(column, row));
+                points += parallel.getCount(column, row);
+            }
+        }
+        assertEquals(299_999, points);
+        assertEquals(299_999.0, parallel.getMaxX(), 0.0);
+        assertEquals(-1.0, parallel.getMinY(), 1e-6);
+
+        JFreeChart chart = new ChartService().buildChart(trace, "Scatter Plot",
+            ChartOptions.DEFAULT.withMaxPoints(300));
+        XYPlot plot = chart.getXYPlot();
+        assertEquals(0, plot.getDataset().getSeriesCount());
+        assertEquals(1, ((AbstractXYItemRenderer) plot.getRenderer()).getAnnotations().size());
+        assertTrue(plot.getDomainAxis().getRange().contains(299_999.0));
+        assertTrue(plot.getDomainAxis().getRange().getLowerBound() < 1000);
+    }
+
+    @Test
+    public void shouldReuseChartsUntilDataChanges() {
+        ChartService chartService = new ChartService();
+        DataSet sales = new DataService().createSampleDataSet();
+
+        JFreeChart bars = chartService.buildChart(sales, "Bar Chart");
+        assertSame(bars, chartService.buildChart(sales, "bar chart"));
+        assertNotSame(bars, chartService.buildChart(sales, "Bar Chart", ChartOptions.DEFAULT.withMaxCategories(2)));
+
+        sales.addRow("Laptops", 100, "Q3");
+        JFreeChart rebuilt = chartService.buildChart(sales, "Bar Chart");
+        assertNotSame(bars, rebuilt);
+        assertEquals(3400.0, rebuilt.getCategoryPlot().getDataset().getValue(0, 0).doubleValue(), 0.0);
+    }
+
+    @Test
+    public void cacheShouldEvictLeastRecentlyUsed() {
+        DataSet sales = new DataService().createSampleDataSet();
+        ChartCache cache = new ChartCache(3 * ChartCache.ENTRY_OVERHEAD);
+
+        cache.put(sales, sales.getVersion(), "a", null, "A", 0);
+        cache.put(sales, sales.getVersion(), "b", null, "B", 0);
+        cache.put(sales, sales.getVersion(), "c", null, "C", 0);
+        assertEquals("A", cache.get(sales, "a", null));
+        cache.put(sales, sales.getVersion(), "d", null, "D", 0);
+        assertNull(cache.get(sales, "b", null));
+        assertEquals(3, cache.size());
+
+        // Too large to cache at all
+        cache.put(sales, sales.getVersion(), "e", null, "E", 3 * ChartCache.ENTRY_OVERHEAD);
+        assertNull(cache.get(sales, "e", null));
+
+        long version = sales.getVersion();
+        sales.setValue(0, 1, 1);
+        assertNull(cache.get(sales, "a", null));
+        cache.put(sales, version, "stale", null, "S", 0);
+        assertEquals(3, cache.size());
+        cache.put(sales, sales.getVersion(), "a", null, "A2", 0);
+        assertEquals(1, cache.size());
+        assertEquals(ChartCache.ENTRY_OVERHEAD, cache.getEstimatedBytes());
+    }
+
+    @Test
+    public void shouldExportWithoutSwing() throws Exception {
+        ChartService chartService = new ChartService();
+        JFreeChart chart = chartService.buildChart(new DataService().createSampleDataSet(), "Bar Chart");
+        File png = folder.newFile("chart.png");
+        File svg = folder.newFile("chart.svg");
+
+        chartService.exportChart(chart, png.getPath(), 1600, 1000, "png");
+        BufferedImage image = ImageIO.read(png);
+        assertEquals(1600, image.getWidth());
+        assertEquals(1000, image.getHeight());
+
+        chartService.exportChart(chart, svg.getPath(), 300, 200, "SVG");
+        String document = new String(Files.readAllBytes(svg.toPath()), StandardCharsets.UTF_8);
+        assertTrue(document.contains("<svg") && document.contains("data:image/png;base64,"));
+
+        List<Future<File>> exports = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            exports.add(chartService.exportChartAsync(chart, folder.newFile("chart" + i + ".jpg"),
+                400 + i, 300, ChartExporter.Format.JPEG));
+        }
+        for (int i = 0; i < exports.size(); i++) {
+            assertEquals(400 + i, ImageIO.read(exports.get(i).get()).getWidth());
+        }
+    }
+
+    @Test
+    public void categoryAdapterShouldReadFromColumns() {
+        DataSet sales = new DataService().createSampleDataSet();
+        sales.addRow("Monitors", "n/a", "Q2");
+
+        CategoryDataset dataset = new DataSetCategoryDataset(sales, 0, 1);
+
+        assertEquals(1, dataset.getRowCount());
+        assertEquals(3, dataset.getColumnCount());
+        assertEquals("Sales", dataset.getRowKey(0));
+        // Like DefaultCategoryDataset the last row of a category wins
+        assertEquals(2100.0, dataset.getValue("Sales", "Phones").doubleValue(), 0.0);
+        assertEquals(-1, dataset.getColumnIndex("Monitors"));
+    }
+
+    @Test
+    public void xyAdapterShouldUseDownsampledRows() {
+        DataSet trace = createTrace(50_000);
+        trace.setValue(10, 1, null);
+
+        JFreeChart chart = new ChartService().buildChart(trace, "Line Chart",
+            ChartOptions.DEFAULT.withMaxPoints(300));
+        XYDataset dataset = chart.getXYPlot().getDataset();
+        assertEquals(300, dataset.getItemCount(0));
+        assertEquals(49_999.0, dataset.getXValue(0, 299), 0.0);
+
+        XYDataset allRows = new DataSetXYDataset(trace, "Value", 0, 1);
+        assertEquals(50_000, allRows.getItemCount(0));
+        assertNull(allRows.getY(0, 10));
+        assertEquals(Math.sin(0.2), allRows.getYValue(0, 20), 0.0);
+    }
+
+    @Test
+    public void xyAdapterShouldTakeBoundsOfAllRowsFromColumnStats() {
+        DataSet trace = createTrace(1_000);
+        trace.setValue(10, 1, null);
+        trace.setValue(20, 1, 7.5);
+
+        DataSetXYDataset allRows = new DataSetXYDataset(trace, "Value", 0, 1);
+        Range domain = DatasetUtils.findDomainBounds(allRows);
+        assertEquals(0.0, domain.getLowerBound(), 0.0);
+        assertEquals(999.0, domain.getUpperBound(), 0.0);
+        assertEquals(7.5, DatasetUtils.findRangeBounds(allRows).getUpperBound(), 0.0);
+        assertEquals(DatasetUtils.iterateRangeBounds(allRows).getLowerBound(),
+            allRows.getRangeLowerBound(false), 0.0);
+
+        // A subset of rows has the bounds of its own values
+        allRows.setRows(new int[] {1, 2, 3});
+        assertEquals(new Range(1.0, 3.0), allRows.getDomainBounds(false));
+        assertEquals(Math.sin(0.03), allRows.getRangeUpperBound(false), 0.0);
+
+        DataSet empty = new DataSet("Empty");
+        empty.addColumn("Time");
+        empty.addColumn("Value");
+        assertNull(new DataSetXYDataset(empty, "Value", 0, 1).getDomainBounds(false));
+    }
+}
@@ -0,0 +1,137 @@
+package com.dvs.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dvs.model.DataSet;
+
+/**
+ * Tests for the CSV loading paths of DataService
+ */
+public class CsvLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeCsv(String content) throws IOException {
+        File file = folder.newFile("data.csv");
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private File writeQuotedCsv(int rows) throws IOException {
+        StringBuilder sb = new StringBuilder("Name,Value,Note\r\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("item").append(i).append(',').append(i * 10).append(',');
+            if (i % 3 == 0) {
+                sb.append("\"multi\nline, \"\"quoted\"\" ").append(i).append('"');
+            } else {
+                sb.append("plain ").append(i);
+            }
+            sb.append("\r\n");
+        }
+        return writeCsv(sb.toString());
+    }
+
+    @Test
+    public void shouldStreamCsvFile() throws Exception {
+        File file = writeCsv("Product,Sales,Quarter\nLaptops,1500,Q1\n\nPhones,2.5,Q2\n");
+
+        DataSet dataSet = new DataService().loadCSVFile(file);
+
+        assertEquals(3, dataSet.getColumnCount());
+        assertEquals(2, dataSet.getRowCount());
+        assertEquals("Phones", dataSet.getValue(1, 0));
+        assertEquals(2.5, dataSet.getDouble(1, 1), 0.0);
+    }
+
+    @Test
+    public void shouldSplitOnRecordBoundariesWithQuotedNewlines() throws Exception {
+        File file = writeQuotedCsv(500);
+
+        DataSet expected = new DataService().loadCSVFile(file);
+        for (int parallelism : new int[] {1, 3, 16, 64}) {
+            DataSet actual = new ParallelCsvLoader(parallelism).load(file, null);
+
+            assertEquals(expected.getColumnNames(), actual.getColumnNames());
+            assertEquals(expected.getData(), actual.getData());
+        }
+        assertEquals("multi\nline, \"quoted\" 3", expected.getValue(3, 2));
+    }
+
+    @Test
+    public void shouldDecodeUtf8AndSkipByteOrderMarkOnBothPaths() throws Exception {
+        File file = writeCsv("\uFEFFCafé,Prix\nCrème brûlée,6.5\nThé,3\n");
+
+        DataSet streamed = new DataService().loadCSVFile(file);
+        DataSet mapped = new ParallelCsvLoader(2).load(file, null);
+
+        assertEquals(Arrays.asList("Café", "Prix"), streamed.getColumnNames());
+        assertEquals(streamed.getColumnNames(), mapped.getColumnNames());
+        assertEquals("Crème brûlée", streamed.getValue(0, 0));
+        assertEquals(streamed.getData(), mapped.getData());
+    }
+
+    @Test
+    public void shouldPreviewFirstRows() throws Exception {
+        File file = writeQuotedCsv(500);
+        List<DataSet> previews = new ArrayList<>();
+        LoadProgressListener listener = new LoadProgressListener() {
+            @Override
+            public void progressUpdated(LoadProgress progress) {
+            }
+
+            @Override
+            public void previewAvailable(DataSet preview) {
+                previews.add(preview);
+            }
+        };
+
+        DataSet expected = new DataService().loadCSVFile(file, listener);
+        new ParallelCsvLoader(4).load(file, listener);
+
+        assertEquals(2, previews.size());
+        for (DataSet preview : previews) {
+            assertEquals(LoadProgressListener.PREVIEW_ROWS, preview.getRowCount());
+            assertEquals(expected.getData().subList(0, LoadProgressListener.PREVIEW_ROWS), preview.getData());
+        }
+    }
+
+    @Test
+    public void shouldStopWhenInterrupted() throws Exception {
+        File file = writeQuotedCsv(30_000);
+        Thread.currentThread().interrupt();
+        try {
+            new DataService().loadCSVFile(file);
+            fail("Streaming load was not cancelled");
+        } catch (InterruptedIOException expected) {
+            // cancelled
+        }
+
+        Thread.currentThread().interrupt();
+        try {
+            new ParallelCsvLoader(2).load(file, null);
+            fail("Parallel load was not cancelled");
+        } catch (InterruptedIOException expected) {
+            // cancelled
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.dvs.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.dvs.model.DataSet;
+
+/**
+ * Tests for the level-of-detail row selection
+ */
+public class DownsamplerTest {
+
+    private static final int ROWS = 100_000;
+    private static final int SPIKE_ROW = 43_210;
+
+    /** Noisy sine trace with one spike and a few missing values */
+    private DataSet createTrace() {
+        DataSet dataSet = new DataSet("Trace");
+        dataSet.addColumn("Time");
+        dataSet.addColumn("Value");
+        for (int i = 0; i < ROWS; i++) {
+            double value = Math.sin(i / 1000.0) + (i % 7) * 0.01;
+            dataSet.addRow(i, i == SPIKE_ROW ? 50.0 : value);
+        }
+        dataSet.setValue(0, 1, null);
+        dataSet.setValue(500, 1, "n/a");
+        return dataSet;
+    }
+
+    private static void assertIncreasing(int[] rows) {
+        for (int i = 1; i < rows.length; i++) {
+            assertTrue(rows[i - 1] < rows[i]);
+        }
+    }
+
+    @Test
+    public void lttbShouldKeepEndsAndPeaks() {
+        DataSet trace = createTrace();
+
+        int[] rows = Downsampler.largestTriangleThreeBuckets(trace, 0, 1, 0, ROWS, 500);
+
+        assertEquals(500, rows.length);
+        assertEquals(1, rows[0]);
+        assertEquals(ROWS - 1, rows[rows.length - 1]);
+        assertTrue(Arrays.binarySearch(rows, SPIKE_ROW) >= 0);
+        assertTrue(Arrays.binarySearch(rows, 500) < 0);
+        assertIncreasing(rows);
+    }
+
+    @Test
+    public void minMaxShouldKeepEveryBucketExtreme() {
+        DataSet trace = createTrace();
+
+        int[] rows = Downsampler.minMax(trace, 0, 1, 0, ROWS, 400);
+
+        assertTrue(rows.length <= 400);
+        assertTrue(Arrays.binarySearch(rows, SPIKE_ROW) >= 0);
+        assertIncreasing(rows);
+    }
+
+    @Test
+    public void shouldKeepShortSeriesAndFullResolution() {
+        DataSet trace = createTrace();
+
+        int[] window = Downsampler.selectRows(trace, 0, 1, 495, 505, ChartOptions.DEFAULT);
+        assertArrayEquals(new int[] {495, 496, 497, 498, 499, 501, 502, 503, 504}, window);
+
+        int[] all = Downsampler.selectRows(trace, 0, 1, 0, ROWS, ChartOptions.FULL_RESOLUTION);
+        assertEquals(ROWS - 2, all.length);
+    }
+
+    @Test
+    public void shouldSearchAscendingRows() {
+        DataSet dataSet = new DataSet("Steps");
+        dataSet.addColumn("Time");
+        dataSet.addColumn("Value");
+        for (int i = 0; i < 100; i++) {
+            dataSet.addRow(i / 2, i);
+        }
+
+        assertTrue(Downsampler.isAscending(dataSet, 0, 0, 100));
+        assertEquals(20, Downsampler.lowerBound(dataSet, 0, 0, 100, 10));
+        assertEquals(22, Downsampler.upperBound(dataSet, 0, 0, 100, 10));
+        assertEquals(22, Downsampler.lowerBound(dataSet, 0, 0, 100, 10.5));
+        assertEquals(100, Downsampler.lowerBound(dataSet, 0, 0, 100, 1000));
+
+        dataSet.setValue(50, 0, 3);
+        assertFalse(Downsampler.isAscending(dataSet, 0, 0, 100));
+    }
+}
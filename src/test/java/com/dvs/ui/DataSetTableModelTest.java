@@ -0,0 +1,61 @@
+package com.dvs.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Test;
+
+import com.dvs.model.DataSet;
+
+/**
+ * Tests for the table model of the data preview
+ */
+public class DataSetTableModelTest {
+
+    @Test
+    public void shouldReadCellsFromDataSet() {
+        DataSet dataSet = new DataSet("Sales");
+        dataSet.addColumn("Product");
+        dataSet.addColumn("Sales");
+        dataSet.addRow("Laptops", 1500);
+        dataSet.addRow("Phones", null);
+
+        DataSetTableModel model = new DataSetTableModel(dataSet);
+        assertEquals(2, model.getRowCount());
+        assertEquals(2, model.getColumnCount());
+        assertEquals("Sales", model.getColumnName(1));
+        assertEquals(Object.class, model.getColumnClass(0));
+        assertEquals(Number.class, model.getColumnClass(1));
+        assertEquals("Laptops", model.getValueAt(0, 0));
+        assertEquals(1500L, ((Number) model.getValueAt(0, 1)).longValue());
+        assertNull(model.getValueAt(1, 1));
+
+        // The table sees changes of the dataset without any copy
+        dataSet.setValue(1, 1, 2300);
+        assertEquals(2300L, ((Number) model.getValueAt(1, 1)).longValue());
+    }
+
+    @Test
+    public void shouldChangeStructureWithDataSet() {
+        DataSetTableModel model = new DataSetTableModel();
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        assertEquals(0, model.getRowCount());
+
+        DataSet dataSet = new DataSet();
+        dataSet.addColumn("x");
+        dataSet.addRow(1);
+        model.setDataSet(dataSet);
+        assertEquals(1, model.getRowCount());
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.HEADER_ROW, events.get(0).getFirstRow());
+
+        model.setDataSet(null);
+        assertEquals(0, model.getColumnCount());
+    }
+}
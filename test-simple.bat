@@ -10,7 +10,7 @@ if not exist "target\classes" mkdir target\classes
 
 REM Compile the simplified app with Java 8 target
 echo Compiling simplified version for Java 8...
-javac -J-Xms16m -J-Xmx64m -source 8 -target 8 -d target\classes -cp target\classes src\main\java\com\dvs\model\DataSet.java src\main\java\com\dvs\simple\SimpleApp.java
+javac -J-Xms16m -J-Xmx64m -source 8 -target 8 -d target\classes -cp target\classes src\main\java\com\dvs\model\*.java src\main\java\com\dvs\ui\DataSetTableModel.java src\main\java\com\dvs\simple\SimpleApp.java
 
 if %errorlevel% neq 0 (
     echo Compilation failed!